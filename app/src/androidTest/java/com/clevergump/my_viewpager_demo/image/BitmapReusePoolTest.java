@@ -0,0 +1,137 @@
+package com.clevergump.my_viewpager_demo.image;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.clevergump.my_viewpager_demo.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 模拟连续滑过50个图片页面, 比较使用和不使用 {@link BitmapReusePool} 时解码过程中新分配的 Bitmap 以及发生的
+ * GC 次数.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapReusePoolTest {
+
+    private static final int PAGE_COUNT = 50;
+
+    // 模拟 offscreenPageLimit 为1时的页面窗口: 同时只保留3个页面的图片.
+    private static final int WINDOW_SIZE = 3;
+
+    // 这几张图片的尺寸相同, 不采样解码时在所有 API 版本上都可以互相复用.
+    private static final int[] PAGE_IMAGES = {
+            R.drawable.realmadrid_wolfsburg_1,
+            R.drawable.realmadrid_wolfsburg_2,
+            R.drawable.realmadrid_wolfsburg_3,
+            R.drawable.realmadrid_wolfsburg_4,
+    };
+
+    @Test
+    public void reusePoolAvoidsAllocatingBitmapsDuringSwipe() {
+        SwipeStats withoutPool = swipe(null);
+        BitmapReusePool pool = new BitmapReusePool(32 * 1024 * 1024);
+        SwipeStats withPool = swipe(pool);
+
+        // 不使用复用池时, 每个页面都新分配一个 Bitmap.
+        assertEquals(PAGE_COUNT, withoutPool.mAllocatedCount);
+        assertEquals(0, withoutPool.mReusedCount);
+
+        // 使用复用池时, 只有窗口填满 (以及第一个页面滑出窗口) 之前的页面需要新分配, 之后每个页面都复用了
+        // 滑出窗口的页面的 Bitmap.
+        int expectedReused = PAGE_COUNT - (WINDOW_SIZE + 1);
+        assertEquals(expectedReused, pool.getHitCount());
+        assertEquals(expectedReused, withPool.mReusedCount);
+        assertEquals(WINDOW_SIZE + 1, withPool.mAllocatedCount);
+        assertTrue(withPool.mReusedBytes > 0);
+        assertEquals(withoutPool.mAllocatedBytes - withPool.mAllocatedBytes, withPool.mReusedBytes);
+    }
+
+    @Test
+    public void reusePoolReducesGcDuringSwipe() {
+        assumeTrue("art.gc.gc-count is only available since API 23",
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.M);
+        long gcCountWithoutPool = swipe(null).mGcCount;
+        // 不使用复用池时也没有发生 GC, 说明设备的堆足够大, 这个比较没有意义.
+        assumeTrue("no GC happened without the pool", gcCountWithoutPool > 0);
+
+        long gcCountWithPool = swipe(new BitmapReusePool(32 * 1024 * 1024)).mGcCount;
+        assertTrue("gc count with pool: " + gcCountWithPool + ", without pool: " + gcCountWithoutPool,
+                gcCountWithPool < gcCountWithoutPool);
+    }
+
+    @Test
+    public void bucketsBySizeAndConfig() {
+        BitmapReusePool pool = new BitmapReusePool(32 * 1024 * 1024);
+        Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+
+        assertNull(pool.get(100, 50, Bitmap.Config.RGB_565));
+        assertSame(bitmap, pool.get(100, 50, Bitmap.Config.ARGB_8888));
+        assertNull(pool.get(100, 50, Bitmap.Config.ARGB_8888));
+    }
+
+    private SwipeStats swipe(BitmapReusePool pool) {
+        Resources res = InstrumentationRegistry.getTargetContext().getResources();
+        LinkedList<Bitmap> window = new LinkedList<Bitmap>();
+        // 解码出过的所有 Bitmap, 用于区分新分配的和复用的.
+        IdentityHashMap<Bitmap, Boolean> decoded = new IdentityHashMap<Bitmap, Boolean>();
+        SwipeStats stats = new SwipeStats();
+        Runtime.getRuntime().gc();
+        long gcCountBefore = getGcCount();
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            Bitmap bitmap = PageBitmapDecoder.decodeResource(res, PAGE_IMAGES[page % PAGE_IMAGES.length], 0, 0,
+                    pool, new BitmapFactory.Options());
+            assertNotNull(bitmap);
+            int byteCount = bitmap.getRowBytes() * bitmap.getHeight();
+            if (decoded.put(bitmap, Boolean.TRUE) == null) {
+                stats.mAllocatedCount++;
+                stats.mAllocatedBytes += byteCount;
+            } else {
+                stats.mReusedCount++;
+                stats.mReusedBytes += byteCount;
+            }
+            window.addLast(bitmap);
+            if (window.size() > WINDOW_SIZE) {
+                Bitmap evicted = window.removeFirst();
+                if (pool != null) {
+                    pool.put(evicted);
+                }
+            }
+        }
+        stats.mGcCount = getGcCount() - gcCountBefore;
+        return stats;
+    }
+
+    private static long getGcCount() {
+        // art.gc.gc-count 从 API 23 开始才可以获取.
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return 0;
+        }
+        return Long.parseLong(Debug.getRuntimeStat("art.gc.gc-count"));
+    }
+
+    private static class SwipeStats {
+        int mAllocatedCount;
+        long mAllocatedBytes;
+        int mReusedCount;
+        long mReusedBytes;
+        long mGcCount;
+    }
+}
@@ -3,10 +3,13 @@ package com.clevergump.my_viewpager_demo;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
+import android.view.ViewStub;
 import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.Toast;
 
+import com.clevergump.my_viewpager_demo.image.PageImageLoader;
 import com.clevergump.my_viewpager_demo.widget.MyViewPager5;
 
 import java.util.LinkedList;
@@ -43,10 +46,35 @@ public class MainActivity5 extends AppCompatActivity {
     private void initSetting() {
         mLv.setAdapter(new ArrayAdapter<String>(MainActivity5.this, android.R.layout.simple_list_item_1,
                 android.R.id.text1, mDataList));
+        loadPageImages();
+    }
+
+    /**
+     * 图片页面中的大图都在子线程中按照 ImageView 的实际尺寸解码, 不再在 inflate 时由主线程按原图尺寸解码.
+     * 声明为 ViewStub 的页面在 inflate 以后才开始加载其中的图片.
+     */
+    private void loadPageImages() {
+        final PageImageLoader imageLoader = PageImageLoader.getInstance(this);
+        imageLoader.load((ImageView) findViewById(R.id.iv_page_a), R.drawable.a);
+        ((ViewStub) findViewById(R.id.stub_page_b)).setOnInflateListener(new ViewStub.OnInflateListener() {
+            @Override
+            public void onInflate(ViewStub stub, View inflated) {
+                imageLoader.load((ImageView) inflated.findViewById(R.id.iv_page_b), R.drawable.b);
+            }
+        });
+        ((ViewStub) findViewById(R.id.stub_page_article)).setOnInflateListener(new ViewStub.OnInflateListener() {
+            @Override
+            public void onInflate(ViewStub stub, View inflated) {
+                imageLoader.load((ImageView) inflated.findViewById(R.id.iv_article_1), R.drawable.realmadrid_wolfsburg_1);
+                imageLoader.load((ImageView) inflated.findViewById(R.id.iv_article_2), R.drawable.realmadrid_wolfsburg_2);
+                imageLoader.load((ImageView) inflated.findViewById(R.id.iv_article_3), R.drawable.realmadrid_wolfsburg_3);
+                imageLoader.load((ImageView) inflated.findViewById(R.id.iv_article_4), R.drawable.realmadrid_wolfsburg_4);
+            }
+        });
     }
 
     public void getCurrScrollX(View view) {
-        int scrollX = mMyViewPager.getScrollX();
+        int scrollX = mMyViewPager.getPageScrollX();
         Toast.makeText(MainActivity5.this, "scrollX = " + scrollX, Toast.LENGTH_LONG).show();
     }
 }
\ No newline at end of file
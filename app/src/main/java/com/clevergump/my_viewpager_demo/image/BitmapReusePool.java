@@ -0,0 +1,181 @@
+package com.clevergump.my_viewpager_demo.image;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * 可复用的 Bitmap 池. 已经不再显示, 也不在 {@link PageBitmapCache} 中的 Bitmap 会被放入该池中, 解码新图片时
+ * 通过 {@link android.graphics.BitmapFactory.Options#inBitmap} 复用它们的内存, 而不是每次都重新分配一块几MB的
+ * 内存, 从而减少快速翻页时的 GC 次数.
+ *
+ * 池中的 Bitmap 按照 宽度, 高度 和 Bitmap.Config 分桶存放. API 19 以前 inBitmap 要求尺寸完全相同, 只能从同一个
+ * 桶中取; API 19 及以后只要求字节数足够, 同一个桶中没有时还会从 Config 相同的其他桶中找一个足够大的.
+ * 池中 Bitmap 的总字节数有上限, 超出上限时先丢弃最早放入的 Bitmap. 解码时被 BitmapFactory 拒绝过的尺寸和
+ * Config 通过 {@link #onReuseRejected} 记下, 之后不再为它们提供 Bitmap.
+ *
+ * 该类的所有方法都是线程安全的.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class BitmapReusePool {
+
+    private final int mMaxSizeBytes;
+    private int mSizeBytes;
+
+    // key 为 宽度, 高度 和 Config 组成的字符串.
+    private final HashMap<String, ArrayList<Bitmap>> mBuckets = new HashMap<String, ArrayList<Bitmap>>();
+
+    // 按放入顺序记录池中的所有 Bitmap, 超出上限时从头部开始丢弃.
+    private final LinkedList<Bitmap> mInsertionOrder = new LinkedList<Bitmap>();
+
+    // 解码时拒绝过 inBitmap 的图片, key 与桶的 key 相同.
+    private final HashSet<String> mRejectedKeys = new HashSet<String>();
+
+    private int mHitCount;
+    private int mMissCount;
+
+    public BitmapReusePool(int maxSizeBytes) {
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * 取出一个可以用作 inBitmap 来解码给定尺寸图片的 Bitmap.
+     * @param width 解码后图片的宽度
+     * @param height 解码后图片的高度
+     * @param config 解码后图片的 Config
+     * @return 可复用的 Bitmap, 没有合适的 Bitmap 时返回 null.
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        String key = bucketKey(width, height, config);
+        if (mRejectedKeys.contains(key)) {
+            mMissCount++;
+            return null;
+        }
+        Bitmap bitmap = takeFromBucket(key);
+        if (bitmap == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            bitmap = takeLargeEnough(width, height, config);
+        }
+        if (bitmap == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        mInsertionOrder.remove(bitmap);
+        mSizeBytes -= getByteCount(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * 放入一个不再使用的 Bitmap. 不可变的或者已经回收的 Bitmap 无法复用, 将被直接丢弃.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int byteCount = getByteCount(bitmap);
+        if (byteCount > mMaxSizeBytes || mInsertionOrder.contains(bitmap)) {
+            return;
+        }
+        String key = bucketKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayList<Bitmap> bucket = mBuckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<Bitmap>();
+            mBuckets.put(key, bucket);
+        }
+        bucket.add(bitmap);
+        mInsertionOrder.addLast(bitmap);
+        mSizeBytes += byteCount;
+
+        while (mSizeBytes > mMaxSizeBytes) {
+            Bitmap eldest = mInsertionOrder.removeFirst();
+            mBuckets.get(bucketKey(eldest.getWidth(), eldest.getHeight(), eldest.getConfig())).remove(eldest);
+            mSizeBytes -= getByteCount(eldest);
+        }
+    }
+
+    /**
+     * 解码给定尺寸和 Config 的图片时, BitmapFactory 拒绝了从 {@link #get} 中取出的 inBitmap. 把它放回池中, 这次
+     * 取出不算命中; 之后不再为这种图片提供 Bitmap, 避免每次都取出一个 Bitmap 又被拒绝.
+     * @param bitmap 被拒绝的 Bitmap
+     * @param width 解码后图片的宽度, 与调用 {@link #get} 时相同.
+     * @param height 解码后图片的高度, 与调用 {@link #get} 时相同.
+     * @param config 解码后图片的 Config, 与调用 {@link #get} 时相同.
+     */
+    public synchronized void onReuseRejected(Bitmap bitmap, int width, int height, Bitmap.Config config) {
+        mRejectedKeys.add(bucketKey(width, height, config));
+        mHitCount--;
+        mMissCount++;
+        put(bitmap);
+    }
+
+    public synchronized void clear() {
+        mBuckets.clear();
+        mInsertionOrder.clear();
+        mSizeBytes = 0;
+    }
+
+    public synchronized int size() {
+        return mSizeBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    private Bitmap takeFromBucket(String key) {
+        ArrayList<Bitmap> bucket = mBuckets.get(key);
+        if (bucket == null || bucket.isEmpty()) {
+            return null;
+        }
+        return bucket.remove(bucket.size() - 1);
+    }
+
+    /**
+     * 从 Config 相同的所有桶中找一个字节数足够的 Bitmap (只适用于 API 19 及以后).
+     */
+    private Bitmap takeLargeEnough(int width, int height, Bitmap.Config config) {
+        int requiredBytes = width * height * bytesPerPixel(config);
+        for (Iterator<Bitmap> it = mInsertionOrder.iterator(); it.hasNext(); ) {
+            Bitmap candidate = it.next();
+            if (candidate.getConfig() == config && getByteCount(candidate) >= requiredBytes) {
+                mBuckets.get(bucketKey(candidate.getWidth(), candidate.getHeight(), config)).remove(candidate);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static String bucketKey(int width, int height, Bitmap.Config config) {
+        return width + "x" + height + "-" + config;
+    }
+
+    private static int getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    // ARGB_4444 已经废弃, 但解码时依然可能被指定.
+    @SuppressWarnings("deprecation")
+    static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) {
+            return 4;
+        } else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return 1;
+    }
+}
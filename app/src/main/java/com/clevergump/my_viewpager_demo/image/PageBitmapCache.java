@@ -0,0 +1,230 @@
+package com.clevergump.my_viewpager_demo.image;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 进程内所有 {@link com.clevergump.my_viewpager_demo.widget.MyViewPager5} 共用的页面图片缓存, 缓存的总字节数
+ * 不超过上限 (默认为最大可用内存的1/8).
+ *
+ * 与普通的 LRU 缓存不同, 每张图片都记录了它所属的 pager 以及所在的页面位置, 超出上限需要淘汰时, 优先淘汰离其
+ * 所属 pager 的当前页面最远的图片, 距离相同时再淘汰最久没有被使用的图片. 这样用户接下来最有可能看到的页面上
+ * 的图片会尽量留在缓存中. 此外, 系统通过 onTrimMemory() 通知内存紧张时, 会按照紧张程度缩减缓存.
+ *
+ * 因超出上限而被淘汰的图片会通过 {@link OnEvictedListener} 通知出去, 以便在它不再显示时放入 {@link
+ * BitmapReusePool} 复用. 因内存紧张而被清除的图片则不会通知, 直接交给 GC 回收.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class PageBitmapCache implements ComponentCallbacks2 {
+
+    // 不属于任何页面的图片使用的页面位置
+    public static final int NO_POSITION = -1;
+
+    private static volatile PageBitmapCache sInstance;
+
+    // 按访问顺序排列, 最久没有被使用的在最前面.
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    // 每个 pager 的当前页面位置
+    private final WeakHashMap<Object, Integer> mCurrentPages = new WeakHashMap<Object, Integer>();
+
+    private final int mMaxSizeBytes;
+    private int mSizeBytes;
+
+    private OnEvictedListener mOnEvictedListener;
+
+    /**
+     * 图片被淘汰 (或者被同一个 key 的新图片替换) 时的回调.
+     */
+    public interface OnEvictedListener {
+        void onEvicted(Bitmap bitmap);
+    }
+
+    public static PageBitmapCache getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (PageBitmapCache.class) {
+                if (sInstance == null) {
+                    Context appContext = context.getApplicationContext();
+                    sInstance = new PageBitmapCache((int) (Runtime.getRuntime().maxMemory() / 8));
+                    appContext.registerComponentCallbacks(sInstance);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private PageBitmapCache(int maxSizeBytes) {
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * 记录某个 pager 的当前页面位置, 淘汰图片时以此计算每张图片与当前页面的距离.
+     * @param pager 图片所属的 pager
+     * @param currentPosition 该 pager 的当前页面位置
+     */
+    public synchronized void setCurrentPage(Object pager, int currentPosition) {
+        mCurrentPages.put(pager, currentPosition);
+    }
+
+    public synchronized void setOnEvictedListener(OnEvictedListener listener) {
+        mOnEvictedListener = listener;
+    }
+
+    public synchronized Bitmap get(String key) {
+        Entry entry = mEntries.get(key);
+        return entry == null ? null : entry.mBitmap;
+    }
+
+    /**
+     * 放入一张图片, 如果缓存的总字节数因此超出了上限, 则按照页面距离和最近使用情况淘汰其他图片.
+     * @param key 图片的 key
+     * @param bitmap 图片
+     * @param pager 图片所属的 pager, 不属于任何 pager 时传入 null.
+     * @param position 图片所在的页面位置, 不属于任何页面时传入 {@link #NO_POSITION}.
+     */
+    public synchronized void put(String key, Bitmap bitmap, Object pager, int position) {
+        Entry entry = new Entry(bitmap, pager, position);
+        Entry previous = mEntries.put(key, entry);
+        if (previous != null) {
+            mSizeBytes -= previous.mSizeBytes;
+            if (previous.mBitmap != bitmap) {
+                notifyEvicted(previous.mBitmap);
+            }
+        }
+        mSizeBytes += entry.mSizeBytes;
+        trimToSize(mMaxSizeBytes, true);
+    }
+
+    public synchronized Bitmap remove(String key) {
+        Entry entry = mEntries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        mSizeBytes -= entry.mSizeBytes;
+        return entry.mBitmap;
+    }
+
+    /**
+     * @return 缓存中是否有这张图片
+     */
+    public synchronized boolean contains(Bitmap bitmap) {
+        for (Entry entry : mEntries.values()) {
+            if (entry.mBitmap == bitmap) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void evictAll() {
+        trimToSize(0, false);
+    }
+
+    public synchronized int size() {
+        return mSizeBytes;
+    }
+
+    public int maxSize() {
+        return mMaxSizeBytes;
+    }
+
+    /**
+     * 淘汰图片, 直到缓存的总字节数不超过 maxSizeBytes.
+     * @param notifyEvicted 是否通过 {@link OnEvictedListener} 通知被淘汰的图片
+     */
+    private void trimToSize(int maxSizeBytes, boolean notifyEvicted) {
+        while (mSizeBytes > maxSizeBytes && !mEntries.isEmpty()) {
+            // 找出离当前页面最远的图片. 由于是按访问顺序遍历的, 距离相同时先遇到的就是最久没有被使用的.
+            String victimKey = null;
+            int victimDistance = -1;
+            for (Map.Entry<String, Entry> e : mEntries.entrySet()) {
+                int distance = distanceToCurrentPage(e.getValue());
+                if (distance > victimDistance) {
+                    victimKey = e.getKey();
+                    victimDistance = distance;
+                }
+            }
+            Bitmap evicted = remove(victimKey);
+            if (notifyEvicted) {
+                notifyEvicted(evicted);
+            }
+        }
+    }
+
+    private void notifyEvicted(Bitmap bitmap) {
+        if (mOnEvictedListener != null) {
+            mOnEvictedListener.onEvicted(bitmap);
+        }
+    }
+
+    /**
+     * 计算图片所在的页面与其所属 pager 的当前页面之间的距离 (相隔的页面数).
+     */
+    private int distanceToCurrentPage(Entry entry) {
+        if (entry.mPager == null) {
+            // 不属于任何 pager 的图片只按最近使用情况淘汰.
+            return 0;
+        }
+        Object pager = entry.mPager.get();
+        if (pager == null) {
+            // 所属的 pager 已经被回收了, 这张图片不会再被用到, 优先淘汰.
+            return Integer.MAX_VALUE;
+        }
+        if (entry.mPosition == NO_POSITION) {
+            return 0;
+        }
+        Integer currentPosition = mCurrentPages.get(pager);
+        return Math.abs(entry.mPosition - (currentPosition == null ? 0 : currentPosition));
+    }
+
+    @Override
+    public synchronized void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // 进程已经处于后台 LRU 列表的中后部, 随时可能被杀死, 清空缓存.
+            evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            trimToSize(mMaxSizeBytes / 4, false);
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            trimToSize(mMaxSizeBytes / 2, false);
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimToSize(mMaxSizeBytes / 4, false);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(mMaxSizeBytes / 2, false);
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            trimToSize(mMaxSizeBytes * 3 / 4, false);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private static class Entry {
+        final Bitmap mBitmap;
+        final int mSizeBytes;
+        final WeakReference<Object> mPager;
+        final int mPosition;
+
+        Entry(Bitmap bitmap, Object pager, int position) {
+            mBitmap = bitmap;
+            mSizeBytes = bitmap.getRowBytes() * bitmap.getHeight();
+            mPager = pager == null ? null : new WeakReference<Object>(pager);
+            mPosition = position;
+        }
+    }
+}
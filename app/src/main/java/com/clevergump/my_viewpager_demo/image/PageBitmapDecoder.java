@@ -0,0 +1,81 @@
+package com.clevergump.my_viewpager_demo.image;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+/**
+ * 页面图片的解码工具. 按照要求的尺寸计算采样率, 并尽量从 {@link BitmapReusePool} 中取出一个 Bitmap 作为
+ * inBitmap 来复用它的内存.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public final class PageBitmapDecoder {
+
+    private PageBitmapDecoder() {
+    }
+
+    /**
+     * 解码一个图片资源. 可以在任意线程中调用.
+     * @param res 资源
+     * @param resId 图片资源的id
+     * @param reqWidth 要求的宽度, 为0表示不限制宽度.
+     * @param reqHeight 要求的高度, 为0表示不限制高度.
+     * @param pool 可复用的 Bitmap 池, 为 null 表示不复用.
+     * @param options 解码参数, 调用方可以通过它的 requestCancelDecode() 中止解码.
+     * @return 解码出的 Bitmap (可变的, 以便以后放回池中复用), 解码失败或被中止时返回 null.
+     */
+    public static Bitmap decodeResource(Resources res, int resId, int reqWidth, int reqHeight,
+                                        BitmapReusePool pool, BitmapFactory.Options options) {
+        options.inJustDecodeBounds = true;
+        // 不按屏幕密度缩放, 只按要求的尺寸采样, 避免先放大再缩小.
+        options.inScaled = false;
+        BitmapFactory.decodeResource(res, resId, options);
+        if (options.mCancel || options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        options.inSampleSize = inSampleSize;
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = null;
+        int outWidth = (options.outWidth + inSampleSize - 1) / inSampleSize;
+        int outHeight = (options.outHeight + inSampleSize - 1) / inSampleSize;
+        // API 19 以前, 只有不采样 (inSampleSize 为1) 时才能使用 inBitmap.
+        if (pool != null && (inSampleSize == 1 || Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)) {
+            options.inBitmap = pool.get(outWidth, outHeight, options.inPreferredConfig);
+        }
+        try {
+            return BitmapFactory.decodeResource(res, resId, options);
+        } catch (IllegalArgumentException e) {
+            Bitmap rejected = options.inBitmap;
+            if (rejected == null) {
+                throw e;
+            }
+            // inBitmap 不满足复用条件: 把它放回池中, 以后解码这种图片时不再复用, 这次不复用内存再解码一次.
+            options.inBitmap = null;
+            pool.onReuseRejected(rejected, outWidth, outHeight, options.inPreferredConfig);
+            return BitmapFactory.decodeResource(res, resId, options);
+        }
+    }
+
+    /**
+     * 根据原图尺寸和要求的尺寸计算采样率. 采样率取2的整数次幂, 并保证采样后的宽高都不小于要求的宽高.
+     * @param reqWidth 要求的宽度, 为0表示不限制宽度.
+     * @param reqHeight 要求的高度, 为0表示不限制高度.
+     */
+    static int calculateInSampleSize(int rawWidth, int rawHeight, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while ((reqWidth <= 0 || rawWidth / (inSampleSize * 2) >= reqWidth)
+                && (reqHeight <= 0 || rawHeight / (inSampleSize * 2) >= reqHeight)) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
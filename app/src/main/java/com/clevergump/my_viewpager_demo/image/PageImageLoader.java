@@ -0,0 +1,347 @@
+package com.clevergump.my_viewpager_demo.image;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.ImageView;
+
+import com.clevergump.my_viewpager_demo.widget.MyViewPager5;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片页面的加载器. 在子线程中解码图片资源, 并根据 ImageView 的实际尺寸进行采样压缩, 解码完成前先显示占位图.
+ *
+ * 每个 ImageView 同一时刻只会有一个加载请求: 对同一个 ImageView 再次调用 {@link #load(ImageView, int)} 时,
+ * 上一次的请求会被取消. ImageView 从窗口中移除 (例如它所在的页面已经被滑出了 {@link MyViewPager5} 的页面窗口)
+ * 时, 还未完成的请求也会被自动取消.
+ *
+ * 解码出的图片会放入 {@link PageBitmapCache} 中, 同时记录 ImageView 所在的 MyViewPager5 和页面位置, 以便缓存
+ * 按照与当前页面的距离来淘汰图片. 不再显示在任何 ImageView 上并且已经被缓存淘汰的图片会放入 {@link
+ * BitmapReusePool} 中, 供之后的解码通过 inBitmap 复用. 因此 ImageView 从窗口中移除时也会清除它显示的图片,
+ * 重新添加到窗口中时再重新加载.
+ *
+ * 除 {@link #getInstance(Context)} 以外, 其他方法都只能在主线程中调用.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class PageImageLoader {
+
+    // 解码线程的数量
+    private static final int DECODE_THREAD_COUNT = 2;
+
+    // 默认的占位图颜色
+    private static final int DEFAULT_PLACEHOLDER_COLOR = Color.parseColor("#FFEEEEEE");
+
+    private static volatile PageImageLoader sInstance;
+
+    private final Resources mResources;
+    private final PageBitmapCache mBitmapCache;
+    private final BitmapReusePool mReusePool;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mDecodeExecutor;
+
+    // 每个 ImageView 当前正在进行中的加载请求
+    private final WeakHashMap<ImageView, LoadRequest> mPendingRequests = new WeakHashMap<ImageView, LoadRequest>();
+
+    // 已经注册过 OnAttachStateChangeListener 的 ImageView, 以及最近一次要求它加载的图片资源id.
+    private final WeakHashMap<ImageView, Integer> mBoundResIds = new WeakHashMap<ImageView, Integer>();
+
+    // 每个 ImageView 当前显示的 (由该加载器加载的) 图片
+    private final WeakHashMap<ImageView, Bitmap> mDisplayedBitmaps = new WeakHashMap<ImageView, Bitmap>();
+
+    // 每张图片当前正显示在几个 ImageView 上. 为0时才可以放入复用池.
+    private final HashMap<Bitmap, Integer> mDisplayRefCounts = new HashMap<Bitmap, Integer>();
+
+    private Drawable mPlaceholder = new ColorDrawable(DEFAULT_PLACEHOLDER_COLOR);
+
+    private final View.OnAttachStateChangeListener mDetachCanceller = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            // 从窗口中移除时清除了图片, 重新添加到窗口中时再加载一次 (通常会直接命中缓存).
+            ImageView target = (ImageView) v;
+            Integer resId = mBoundResIds.get(target);
+            if (resId != null && !mPendingRequests.containsKey(target) && !mDisplayedBitmaps.containsKey(target)) {
+                load(target, resId);
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            ImageView target = (ImageView) v;
+            cancel(target);
+            release(target);
+            target.setImageDrawable(mPlaceholder);
+        }
+    };
+
+    private final PageBitmapCache.OnEvictedListener mEvictedListener = new PageBitmapCache.OnEvictedListener() {
+        @Override
+        public void onEvicted(Bitmap bitmap) {
+            if (!mDisplayRefCounts.containsKey(bitmap)) {
+                mReusePool.put(bitmap);
+            }
+        }
+    };
+
+    public static PageImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (PageImageLoader.class) {
+                if (sInstance == null) {
+                    sInstance = new PageImageLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private PageImageLoader(Context appContext) {
+        mResources = appContext.getResources();
+        mBitmapCache = PageBitmapCache.getInstance(appContext);
+        mBitmapCache.setOnEvictedListener(mEvictedListener);
+        mReusePool = new BitmapReusePool((int) (Runtime.getRuntime().maxMemory() / 16));
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                // 内存紧张时, 复用池中暂时用不到的 Bitmap 也要释放掉.
+                if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                    mReusePool.clear();
+                }
+            }
+
+            @Override
+            public void onLowMemory() {
+                mReusePool.clear();
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+        });
+        mDecodeExecutor = Executors.newFixedThreadPool(DECODE_THREAD_COUNT, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // 解码线程使用后台优先级, 尽量不与主线程争抢CPU.
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "PageImageLoader #" + mCount.getAndIncrement());
+            }
+        });
+    }
+
+    /**
+     * 设置解码完成前显示的占位图.
+     */
+    public void setPlaceholder(Drawable placeholder) {
+        mPlaceholder = placeholder;
+    }
+
+    /**
+     * 异步加载一个图片资源到给定的 ImageView 中. 如果 ImageView 还没有完成布局, 则等到布局完成后再按照
+     * 它的实际尺寸进行解码.
+     * @param target 要显示图片的 ImageView
+     * @param resId 图片资源的id
+     */
+    public void load(final ImageView target, final int resId) {
+        cancel(target);
+        release(target);
+        watchDetach(target, resId);
+        target.setImageDrawable(mPlaceholder);
+
+        final LoadRequest request = new LoadRequest(target, resId);
+        mPendingRequests.put(target, request);
+        if (target.getWidth() > 0 || target.getHeight() > 0) {
+            request.submit();
+            return;
+        }
+        // 还不知道 ImageView 的尺寸, 等到它完成布局后再开始解码.
+        target.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                v.removeOnLayoutChangeListener(this);
+                if (mPendingRequests.get(target) == request) {
+                    request.submit();
+                }
+            }
+        });
+    }
+
+    /**
+     * 取消给定的 ImageView 上还未完成的加载请求.
+     */
+    public void cancel(ImageView target) {
+        LoadRequest request = mPendingRequests.remove(target);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * 查找 view 所在的 {@link MyViewPager5} 的页面.
+     * @return 长度为2的数组, 依次为 MyViewPager5 和页面位置; view 不在任何 MyViewPager5 中时返回 null.
+     */
+    private static Object[] findEnclosingPage(View view) {
+        View child = view;
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent instanceof MyViewPager5) {
+                MyViewPager5 pager = (MyViewPager5) parent;
+                return new Object[]{pager, pager.getPagePosition(child)};
+            }
+            child = (View) parent;
+            parent = parent.getParent();
+        }
+        return null;
+    }
+
+    private static String cacheKey(int resId, int reqWidth, int reqHeight) {
+        return resId + "@" + reqWidth + "x" + reqHeight;
+    }
+
+    /**
+     * @return 解码时复用的 Bitmap 池
+     */
+    public BitmapReusePool getReusePool() {
+        return mReusePool;
+    }
+
+    private void watchDetach(ImageView target, int resId) {
+        if (mBoundResIds.put(target, resId) == null) {
+            target.addOnAttachStateChangeListener(mDetachCanceller);
+        }
+    }
+
+    /**
+     * 让 ImageView 显示一张图片, 并增加该图片的引用计数.
+     */
+    private void display(ImageView target, Bitmap bitmap) {
+        mDisplayedBitmaps.put(target, bitmap);
+        Integer refCount = mDisplayRefCounts.get(bitmap);
+        mDisplayRefCounts.put(bitmap, refCount == null ? 1 : refCount + 1);
+        target.setImageBitmap(bitmap);
+    }
+
+    /**
+     * 减少 ImageView 当前显示的图片的引用计数. 图片已经不再显示在任何 ImageView 上, 并且也不在缓存中时,
+     * 就放入复用池. 调用方需要随后让 ImageView 显示别的内容.
+     */
+    private void release(ImageView target) {
+        Bitmap bitmap = mDisplayedBitmaps.remove(target);
+        if (bitmap == null) {
+            return;
+        }
+        int refCount = mDisplayRefCounts.get(bitmap) - 1;
+        if (refCount > 0) {
+            mDisplayRefCounts.put(bitmap, refCount);
+            return;
+        }
+        mDisplayRefCounts.remove(bitmap);
+        if (!mBitmapCache.contains(bitmap)) {
+            mReusePool.put(bitmap);
+        }
+    }
+
+    /**
+     * 一次加载请求. 在子线程中解码, 在主线程中显示.
+     */
+    private class LoadRequest implements Runnable {
+        private final ImageView mTarget;
+        private final int mResId;
+        private final BitmapFactory.Options mOptions = new BitmapFactory.Options();
+        private volatile boolean mCancelled;
+        private int mReqWidth;
+        private int mReqHeight;
+        private String mCacheKey;
+        private Object mPager;
+        private int mPagePosition = PageBitmapCache.NO_POSITION;
+        private Future<?> mFuture;
+
+        LoadRequest(ImageView target, int resId) {
+            mTarget = target;
+            mResId = resId;
+        }
+
+        void submit() {
+            mReqWidth = mTarget.getWidth() - mTarget.getPaddingLeft() - mTarget.getPaddingRight();
+            mReqHeight = mTarget.getHeight() - mTarget.getPaddingTop() - mTarget.getPaddingBottom();
+            mCacheKey = cacheKey(mResId, mReqWidth, mReqHeight);
+            // 缓存中已经有同样尺寸的图片, 直接显示.
+            Bitmap cached = mBitmapCache.get(mCacheKey);
+            if (cached != null) {
+                mPendingRequests.remove(mTarget);
+                display(mTarget, cached);
+                return;
+            }
+            Object[] page = findEnclosingPage(mTarget);
+            if (page != null) {
+                mPager = page[0];
+                mPagePosition = (Integer) page[1];
+            }
+            mFuture = mDecodeExecutor.submit(this);
+        }
+
+        void cancel() {
+            mCancelled = true;
+            // 正在解码的话, 让 BitmapFactory 尽早中止解码.
+            mOptions.requestCancelDecode();
+            if (mFuture != null) {
+                mFuture.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            final Bitmap bitmap = PageBitmapDecoder.decodeResource(mResources, mResId, mReqWidth, mReqHeight,
+                    mReusePool, mOptions);
+            if (bitmap == null) {
+                return;
+            }
+            if (mCancelled) {
+                mReusePool.put(bitmap);
+                return;
+            }
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // 请求在解码期间被取消或者被新的请求替换了, 就不再显示, 解码出的图片直接放入复用池.
+                    if (mCancelled || mPendingRequests.get(mTarget) != LoadRequest.this) {
+                        mReusePool.put(bitmap);
+                        return;
+                    }
+                    mPendingRequests.remove(mTarget);
+                    display(mTarget, bitmap);
+                    mBitmapCache.put(mCacheKey, bitmap, mPager, mPagePosition);
+                }
+            });
+        }
+    }
+}
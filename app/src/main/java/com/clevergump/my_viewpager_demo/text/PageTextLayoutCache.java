@@ -0,0 +1,187 @@
+package com.clevergump.my_viewpager_demo.text;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 进程内共用的文字排版缓存. 长文本的断行和排版 ({@link StaticLayout}) 在子线程中计算, 结果按 key 缓存, key 中包含
+ * 文字所在的页面 (或者文字本身), 排版宽度以及影响排版的画笔参数. 同一篇文章的页面被回收后重新绑定, 只要宽度没有
+ * 变化, 就直接使用缓存中的排版结果, 不需要重新计算.
+ *
+ * 超出上限时淘汰最久没有被使用的排版结果. 系统通过 onTrimMemory() 通知内存紧张时清空缓存.
+ *
+ * 除了子线程中的排版以外, {@link #prefetch} 和 {@link #removeCallback} 只能在主线程中调用.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class PageTextLayoutCache implements ComponentCallbacks2 {
+
+    // 最多缓存的排版结果数
+    private static final int MAX_ENTRIES = 64;
+
+    private static volatile PageTextLayoutCache sInstance;
+
+    // 按访问顺序排列, 最久没有被使用的在最前面.
+    private final LinkedHashMap<String, StaticLayout> mLayouts =
+            new LinkedHashMap<String, StaticLayout>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StaticLayout> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    // 正在排版中的请求, 只在主线程中访问.
+    private final HashMap<String, LayoutRequest> mPendingRequests = new HashMap<String, LayoutRequest>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mLayoutExecutor;
+
+    /**
+     * 排版完成的回调, 在主线程中执行.
+     */
+    public interface Callback {
+        void onTextLayoutReady(String key, StaticLayout layout);
+    }
+
+    public static PageTextLayoutCache getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (PageTextLayoutCache.class) {
+                if (sInstance == null) {
+                    sInstance = new PageTextLayoutCache();
+                    context.getApplicationContext().registerComponentCallbacks(sInstance);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private PageTextLayoutCache() {
+        mLayoutExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // 使用后台优先级, 尽量不与主线程争抢CPU.
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "PageTextLayoutCache");
+            }
+        });
+    }
+
+    public synchronized StaticLayout get(String key) {
+        return mLayouts.get(key);
+    }
+
+    public synchronized void put(String key, StaticLayout layout) {
+        mLayouts.put(key, layout);
+    }
+
+    /**
+     * 在子线程中按给定的宽度排版一段文字, 完成后放入缓存并回调. 同一个 key 正在排版中时, 只追加回调.
+     * @param key 排版结果的 key, 必须包含宽度以及影响排版的所有参数.
+     * @param text 要排版的文字, 排版期间不能被修改.
+     * @param paint 画笔, 会被复制一份, 调用以后可以继续修改.
+     * @param width 排版宽度
+     * @param spacingMult 行距倍数
+     * @param spacingAdd 额外的行距
+     * @param callback 完成后的回调
+     */
+    public void prefetch(String key, CharSequence text, TextPaint paint, int width, float spacingMult,
+                         float spacingAdd, Callback callback) {
+        LayoutRequest request = mPendingRequests.get(key);
+        if (request == null) {
+            request = new LayoutRequest(key, text, new TextPaint(paint), width, spacingMult, spacingAdd);
+            mPendingRequests.put(key, request);
+            mLayoutExecutor.execute(request);
+        }
+        if (!request.mCallbacks.contains(callback)) {
+            request.mCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * 不再关心某个 key 的排版结果 (例如 View 已经从窗口中移除了). 排版本身不会被取消, 完成后照样放入缓存.
+     */
+    public void removeCallback(String key, Callback callback) {
+        LayoutRequest request = mPendingRequests.get(key);
+        if (request != null) {
+            request.mCallbacks.remove(callback);
+        }
+    }
+
+    public synchronized void evictAll() {
+        mLayouts.clear();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            evictAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private class LayoutRequest implements Runnable {
+        private final String mKey;
+        private final CharSequence mText;
+        private final TextPaint mPaint;
+        private final int mWidth;
+        private final float mSpacingMult;
+        private final float mSpacingAdd;
+        private final ArrayList<Callback> mCallbacks = new ArrayList<Callback>(1);
+
+        LayoutRequest(String key, CharSequence text, TextPaint paint, int width, float spacingMult,
+                      float spacingAdd) {
+            mKey = key;
+            mText = text;
+            mPaint = paint;
+            mWidth = width;
+            mSpacingMult = spacingMult;
+            mSpacingAdd = spacingAdd;
+        }
+
+        @Override
+        public void run() {
+            final StaticLayout layout = new StaticLayout(mText, mPaint, mWidth, Layout.Alignment.ALIGN_NORMAL,
+                    mSpacingMult, mSpacingAdd, true);
+            put(mKey, layout);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mPendingRequests.remove(mKey);
+                    for (int i = 0; i < mCallbacks.size(); i++) {
+                        mCallbacks.get(i).onTextLayoutReady(mKey, layout);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.clevergump.my_viewpager_demo.text;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import com.clevergump.my_viewpager_demo.R;
+
+/**
+ * 长文本页面使用的只读文字控件. 与 TextView 不同, 断行和排版不在主线程的 onMeasure() 中进行, 而是由
+ * {@link PageTextLayoutCache} 在子线程中按照控件的宽度计算, 测量和绘制时只需要从缓存中取出排版结果.
+ *
+ * 排版结果按照 {@link #setText(CharSequence, String)} 传入的 cacheKey (XML 属性 textCacheKey) 和宽度缓存,
+ * 没有指定 cacheKey 时以文字本身作为 key. 页面被回收后重新绑定同一篇文章时可以直接使用缓存.
+ *
+ * 缓存中还没有当前宽度的排版结果时, 先按照上一次的排版结果 (没有的话高度为0) 测量, 排版完成后再重新布局.
+ * 只支持单一样式的文字: 字号, 颜色, 粗体/斜体和行距.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class PageTextView extends View implements PageTextLayoutCache.Callback {
+
+    private final TextPaint mPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final PageTextLayoutCache mLayoutCache;
+
+    private CharSequence mText = "";
+    private String mCacheKey;
+    private float mSpacingMult = 1f;
+    private float mSpacingAdd;
+
+    // 当前使用的排版结果及其宽度
+    private StaticLayout mLayout;
+    private int mLayoutWidth = -1;
+
+    // 正在子线程中排版的 key
+    private String mPendingKey;
+
+    public PageTextView(Context context) {
+        this(context, null);
+    }
+
+    public PageTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public PageTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mLayoutCache = PageTextLayoutCache.getInstance(context);
+        mPaint.density = getResources().getDisplayMetrics().density;
+        mPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14,
+                getResources().getDisplayMetrics()));
+        mPaint.setColor(Color.BLACK);
+        if (attrs == null) {
+            return;
+        }
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PageTextView, defStyleAttr, 0);
+        mPaint.setTextSize(a.getDimension(R.styleable.PageTextView_android_textSize, mPaint.getTextSize()));
+        mPaint.setColor(a.getColor(R.styleable.PageTextView_android_textColor, mPaint.getColor()));
+        int textStyle = a.getInt(R.styleable.PageTextView_android_textStyle, Typeface.NORMAL);
+        if (textStyle != Typeface.NORMAL) {
+            mPaint.setTypeface(Typeface.defaultFromStyle(textStyle));
+        }
+        mSpacingAdd = a.getDimension(R.styleable.PageTextView_android_lineSpacingExtra, mSpacingAdd);
+        mSpacingMult = a.getFloat(R.styleable.PageTextView_android_lineSpacingMultiplier, mSpacingMult);
+        CharSequence text = a.getText(R.styleable.PageTextView_android_text);
+        String cacheKey = a.getString(R.styleable.PageTextView_textCacheKey);
+        a.recycle();
+        setText(text, cacheKey);
+    }
+
+    public void setText(CharSequence text) {
+        setText(text, null);
+    }
+
+    /**
+     * @param text 要显示的文字
+     * @param cacheKey 排版结果的缓存 key, 例如文章和段落的 id. 不同的文字必须使用不同的 key. 传入 null 时以
+     *                 文字本身作为 key.
+     */
+    public void setText(CharSequence text, String cacheKey) {
+        mText = text == null ? "" : text;
+        mCacheKey = cacheKey;
+        resetLayout();
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * @param size 字号, 单位: sp.
+     */
+    public void setTextSize(float size) {
+        mPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, size,
+                getResources().getDisplayMetrics()));
+        resetLayout();
+    }
+
+    public void setTextColor(int color) {
+        // 排版结果持有排版时的画笔, 颜色也是 key 的一部分.
+        mPaint.setColor(color);
+        resetLayout();
+    }
+
+    private void resetLayout() {
+        if (mPendingKey != null) {
+            mLayoutCache.removeCallback(mPendingKey, this);
+            mPendingKey = null;
+        }
+        mLayout = null;
+        mLayoutWidth = -1;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int contentWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+        StaticLayout layout = obtainLayout(contentWidth);
+        int height = getPaddingTop() + getPaddingBottom() + (layout == null ? 0 : layout.getHeight());
+        setMeasuredDimension(width, resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    /**
+     * 取出给定宽度的排版结果. 缓存中没有时请求在子线程中排版, 暂时返回上一次的排版结果.
+     */
+    private StaticLayout obtainLayout(int width) {
+        if (width == 0 || mLayout != null && mLayoutWidth == width) {
+            return mLayout;
+        }
+        String key = getLayoutKey(width);
+        StaticLayout layout = mLayoutCache.get(key);
+        if (layout != null) {
+            setLayout(layout, width);
+            return layout;
+        }
+        if (!key.equals(mPendingKey)) {
+            if (mPendingKey != null) {
+                mLayoutCache.removeCallback(mPendingKey, this);
+            }
+            mPendingKey = key;
+            mLayoutCache.prefetch(key, mText, mPaint, width, mSpacingMult, mSpacingAdd, this);
+        }
+        return mLayout;
+    }
+
+    private void setLayout(StaticLayout layout, int width) {
+        if (mPendingKey != null) {
+            mLayoutCache.removeCallback(mPendingKey, this);
+            mPendingKey = null;
+        }
+        mLayout = layout;
+        mLayoutWidth = width;
+    }
+
+    /**
+     * @return 排版结果的 key, 包含文字, 宽度以及影响排版和绘制的画笔参数.
+     */
+    private String getLayoutKey(int width) {
+        Typeface typeface = mPaint.getTypeface();
+        return (mCacheKey != null ? mCacheKey : mText.toString()) + '|' + width + '|' + mPaint.getTextSize()
+                + '|' + (typeface == null ? Typeface.NORMAL : typeface.getStyle()) + '|' + mPaint.getColor()
+                + '|' + mSpacingMult + '|' + mSpacingAdd;
+    }
+
+    @Override
+    public void onTextLayoutReady(String key, StaticLayout layout) {
+        if (!key.equals(mPendingKey)) {
+            return;
+        }
+        setLayout(layout, layout.getWidth());
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // 上次 detach 时可能还在等待排版结果, 重新测量一次, 从缓存中取出已经完成的排版结果.
+        if (mLayout == null) {
+            requestLayout();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // 不再等待排版结果, 排版完成后依然会放入缓存, 重新 attach 以后测量时可以直接使用.
+        if (mPendingKey != null) {
+            mLayoutCache.removeCallback(mPendingKey, this);
+            mPendingKey = null;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        mLayout.draw(canvas);
+        canvas.restore();
+    }
+}
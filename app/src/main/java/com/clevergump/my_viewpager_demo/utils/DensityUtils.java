@@ -1,25 +1,52 @@
 package com.clevergump.my_viewpager_demo.utils;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.util.DisplayMetrics;
 import android.view.WindowManager;
 
+/**
+ * 屏幕尺寸和密度相关的工具方法.
+ *
+ * 屏幕的宽高和密度在进程内只获取一次, 缓存在静态的基本类型字段中, 之后的单位换算和宽高查询都直接读取这些字段,
+ * 不会再通过 getSystemService() 查询 WindowManager, 也不会再分配 DisplayMetrics 对象. 屏幕旋转, 字体大小等
+ * 配置发生变化时, 通过 Application 上注册的 {@link ComponentCallbacks} 使缓存失效, 下次使用时重新获取.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
 public class DensityUtils {
+
+    // 缓存是否有效. 先写入下面的各个字段, 最后再写入该字段, 读取时则先读取该字段.
+    private static volatile boolean sMetricsValid;
+    // 是否已经在 Application 上注册了配置变化的回调
+    private static boolean sCallbacksRegistered;
+
+    private static float sDensity;
+    private static float sScaledDensity;
+    private static int sScreenWidthPixels;
+    private static int sScreenHeightPixels;
+
+    // 获取屏幕宽高时复用的对象
+    private static final DisplayMetrics sDisplayMetrics = new DisplayMetrics();
+
     /**
      * 根据手机的分辨率从 dp 的单位 转成为 px(像素)
      */
     public static int dip2px(Context context, float dpValue) {
-        final float scale = context.getResources().getDisplayMetrics().density;
-        return (int) (dpValue * scale + 0.5f);
+        ensureMetrics(context);
+        return (int) (dpValue * sDensity + 0.5f);
     }
 
     /**
      * 根据手机的分辨率从 px(像素) 的单位 转成为 dp
      */
     public static int px2dip(Context context, float pxValue) {
-        final float scale = context.getResources().getDisplayMetrics().density;
-        return (int) (pxValue / scale + 0.5f);
+        ensureMetrics(context);
+        return (int) (pxValue / sDensity + 0.5f);
     }
 
     /**
@@ -29,8 +56,8 @@ public class DensityUtils {
      * @return
      */
     public static int px2sp(Context context, float pxValue) {
-        final float fontScale = context.getResources().getDisplayMetrics().scaledDensity;
-        return (int) (pxValue / fontScale + 0.5f);
+        ensureMetrics(context);
+        return (int) (pxValue / sScaledDensity + 0.5f);
     }
 
     /**
@@ -40,30 +67,24 @@ public class DensityUtils {
      * @return
      */
     public static int sp2px(Context context, float spValue) {
-        final float fontScale = context.getResources().getDisplayMetrics().scaledDensity;
-        return (int) (spValue * fontScale + 0.5f);
+        ensureMetrics(context);
+        return (int) (spValue * sScaledDensity + 0.5f);
     }
 
     /**
      * 获取屏幕的宽度（像素值）
      */
     public static int getScreenWidthPixels(Context context) {
-        Context applicationContext = context.getApplicationContext();
-        WindowManager wm = (WindowManager) applicationContext
-                .getSystemService(Context.WINDOW_SERVICE);
-        int width = wm.getDefaultDisplay().getWidth();
-        return width;
+        ensureMetrics(context);
+        return sScreenWidthPixels;
     }
 
     /**
      * 获取屏幕的长度/高度（像素值）
      */
     public static int getScreenHeightPixels(Context context) {
-        Context applicationContext = context.getApplicationContext();
-        WindowManager wm = (WindowManager) applicationContext
-                .getSystemService(Context.WINDOW_SERVICE);
-        int height = wm.getDefaultDisplay().getHeight();
-        return height;
+        ensureMetrics(context);
+        return sScreenHeightPixels;
     }
 
     /**
@@ -73,7 +94,7 @@ public class DensityUtils {
      * @return
      */
     public static double getScreenSize(Activity activity) {
-        DisplayMetrics dm = getDisplayMetrics(activity);
+        ensureMetrics(activity);
 		/*
 		 * The logical density of the display. This is a scaling factor for the
 		 * Density Independent Pixel unit, where one DIP is one pixel on an
@@ -92,20 +113,19 @@ public class DensityUtils {
 		 *
 		 * @see #DENSITY_DEFAULT
 		 */
-        float density = dm.density;
+        float density = sDensity;
         // 屏幕宽度的像素值
-        int widthPixels = dm.widthPixels;
+        int widthPixels = sScreenWidthPixels;
         // 屏幕长度/高度的像素值
-        int heightPixels = dm.heightPixels;
+        int heightPixels = sScreenHeightPixels;
         // 屏幕对角线的像素值
         double diagonalPixels = Math.sqrt(Math.pow(widthPixels, 2)
                 + Math.pow(heightPixels, 2));
-        dm = null;
         return diagonalPixels / (160 * density);
     }
 
     public static float getDensity(Activity activity) {
-        DisplayMetrics dm = getDisplayMetrics(activity);
+        ensureMetrics(activity);
 		/*
 		 * The logical density of the display. This is a scaling factor for the
 		 * Density Independent Pixel unit, where one DIP is one pixel on an
@@ -124,14 +144,54 @@ public class DensityUtils {
 		 *
 		 * @see #DENSITY_DEFAULT
 		 */
-        float density = dm.density;
-        dm = null;
-        return density;
+        return sDensity;
     }
 
-    private static DisplayMetrics getDisplayMetrics(Activity activity) {
-        DisplayMetrics dm = new DisplayMetrics();
-        activity.getWindowManager().getDefaultDisplay().getMetrics(dm);
-        return dm;
+    /**
+     * 使缓存的屏幕宽高和密度失效, 下次使用时重新获取. 配置发生变化时会自动调用. 与重新获取使用同一把锁,
+     * 保证正在进行的获取不会在失效之后又把旧的值标记为有效.
+     */
+    public static synchronized void invalidateMetrics() {
+        sMetricsValid = false;
+    }
+
+    /**
+     * 缓存无效时重新获取屏幕的宽高和密度. 缓存有效时只读取一次 volatile 字段.
+     */
+    private static void ensureMetrics(Context context) {
+        if (sMetricsValid) {
+            return;
+        }
+        synchronized (DensityUtils.class) {
+            if (sMetricsValid) {
+                return;
+            }
+            Context appContext = context.getApplicationContext();
+            if (appContext == null) {
+                appContext = context;
+            }
+            if (!sCallbacksRegistered) {
+                sCallbacksRegistered = true;
+                appContext.registerComponentCallbacks(new ComponentCallbacks() {
+                    @Override
+                    public void onConfigurationChanged(Configuration newConfig) {
+                        invalidateMetrics();
+                    }
+
+                    @Override
+                    public void onLowMemory() {
+                    }
+                });
+            }
+            // 密度使用 Resources 中的值, 与布局文件中 dp, sp 的换算保持一致.
+            DisplayMetrics resourcesMetrics = appContext.getResources().getDisplayMetrics();
+            sDensity = resourcesMetrics.density;
+            sScaledDensity = resourcesMetrics.scaledDensity;
+            WindowManager wm = (WindowManager) appContext.getSystemService(Context.WINDOW_SERVICE);
+            wm.getDefaultDisplay().getMetrics(sDisplayMetrics);
+            sScreenWidthPixels = sDisplayMetrics.widthPixels;
+            sScreenHeightPixels = sDisplayMetrics.heightPixels;
+            sMetricsValid = true;
+        }
     }
 }
\ No newline at end of file
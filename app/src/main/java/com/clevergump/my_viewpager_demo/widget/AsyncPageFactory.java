@@ -0,0 +1,207 @@
+package com.clevergump.my_viewpager_demo.widget;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 页面的异步创建器. 在子线程中调用 {@link PageAdapter#onCreatePage(ViewGroup, int)} 创建页面 (通常就是 inflate
+ * 页面的布局), 创建好的页面通过主线程的 Handler 送回, 暂存在这里, 由 {@link MyViewPager5} 在两帧之间取出,
+ * 在主线程中绑定数据并添加到容器中.
+ *
+ * 创建出的页面只与页面类型有关, 与位置无关: 请求时虽然记录了位置, 但页面送回以后可以被同一类型的任意位置使用.
+ * 与 {@link RecycledPagePool} 一样, 每种类型最多暂存 {@link #MAX_CREATED_PAGES} 个页面, 超出的页面直接丢弃.
+ * 页面离开窗口以后, 它还没有开始的请求由 {@link #cancelOutside(int, int)} 取消. 所有 pager 共用一个后台优先级的
+ * 工作线程, 按请求的顺序依次创建.
+ *
+ * 除了工作线程中的创建以外, 其他方法都只能在主线程中调用.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+class AsyncPageFactory {
+
+    /**
+     * 页面创建完成的回调, 在主线程中执行.
+     */
+    interface Callback {
+        /**
+         * @param position 请求创建该页面时的页面位置
+         * @param viewType 页面类型
+         */
+        void onPageCreated(int position, int viewType);
+    }
+
+    // 每种页面类型最多暂存的已经创建好的页面数
+    private static final int MAX_CREATED_PAGES = 3;
+
+    private static ExecutorService sCreateExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ViewGroup mParent;
+    private final Callback mCallback;
+
+    // 还没有送回的请求, key 为请求时的页面位置.
+    private final SparseArray<CreateRequest> mPendingRequests = new SparseArray<CreateRequest>();
+
+    // 已经送回但还没有被使用的页面, key 为页面类型.
+    private final SparseArray<ArrayList<View>> mCreatedPages = new SparseArray<ArrayList<View>>();
+
+    // 已经创建好的页面被取出使用的次数
+    private int mUsedPageCount;
+
+    /**
+     * @param parent 页面将要被添加到的容器, 用于生成页面的 LayoutParams.
+     */
+    AsyncPageFactory(ViewGroup parent, Callback callback) {
+        mParent = parent;
+        mCallback = callback;
+    }
+
+    private static synchronized ExecutorService getCreateExecutor() {
+        if (sCreateExecutor == null) {
+            sCreateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            // 使用后台优先级, 尽量不与主线程争抢CPU.
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "AsyncPageFactory");
+                }
+            });
+        }
+        return sCreateExecutor;
+    }
+
+    /**
+     * 请求在子线程中为第 position 个页面创建一个 viewType 类型的页面. 同一位置同一类型的请求还没有送回时什么都不做.
+     */
+    void request(PageAdapter adapter, int position, int viewType) {
+        if (isPending(position, viewType)) {
+            return;
+        }
+        CreateRequest request = new CreateRequest(adapter, position, viewType);
+        mPendingRequests.put(position, request);
+        getCreateExecutor().execute(request);
+    }
+
+    /**
+     * @return 是否已经为第 position 个页面请求过 viewType 类型的页面, 并且还没有送回.
+     */
+    boolean isPending(int position, int viewType) {
+        CreateRequest request = mPendingRequests.get(position);
+        return request != null && request.mViewType == viewType;
+    }
+
+    /**
+     * @return 是否有已经创建好的 viewType 类型的页面
+     */
+    boolean hasCreatedPage(int viewType) {
+        ArrayList<View> pages = mCreatedPages.get(viewType);
+        return pages != null && !pages.isEmpty();
+    }
+
+    /**
+     * 取出一个已经创建好的 viewType 类型的页面.
+     * @return 没有时返回 null.
+     */
+    View getCreatedPage(int viewType) {
+        ArrayList<View> pages = mCreatedPages.get(viewType);
+        if (pages == null || pages.isEmpty()) {
+            return null;
+        }
+        mUsedPageCount++;
+        return pages.remove(pages.size() - 1);
+    }
+
+    /**
+     * @return 已经创建好的页面被取出使用的次数. 这些页面不经过回收池, 不计入回收池的命中/未命中次数.
+     */
+    int getUsedPageCount() {
+        return mUsedPageCount;
+    }
+
+    /**
+     * 取消位置在 [firstPosition, lastPosition] 以外的请求: 这些页面已经离开了窗口, 不再需要等待它们. 正在创建中的
+     * 页面送回后被丢弃.
+     */
+    void cancelOutside(int firstPosition, int lastPosition) {
+        for (int i = mPendingRequests.size() - 1; i >= 0; i--) {
+            int position = mPendingRequests.keyAt(i);
+            if (position < firstPosition || position > lastPosition) {
+                mPendingRequests.valueAt(i).mCancelled = true;
+                mPendingRequests.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * 取消所有还没有开始的请求, 并丢弃已经创建好的页面. 适配器更换或者 pager 离开窗口时调用, 正在创建中的页面
+     * 送回后也会被丢弃.
+     */
+    void cancelAll() {
+        for (int i = 0; i < mPendingRequests.size(); i++) {
+            mPendingRequests.valueAt(i).mCancelled = true;
+        }
+        mPendingRequests.clear();
+        mCreatedPages.clear();
+    }
+
+    private class CreateRequest implements Runnable {
+        private final PageAdapter mAdapter;
+        private final int mPosition;
+        private final int mViewType;
+        private volatile boolean mCancelled;
+
+        CreateRequest(PageAdapter adapter, int position, int viewType) {
+            mAdapter = adapter;
+            mPosition = position;
+            mViewType = viewType;
+        }
+
+        @Override
+        public void run() {
+            // 还没有开始就被取消了 (页面离开了页面窗口, 适配器已经更换或者 pager 离开了窗口), 不再创建.
+            if (mCancelled) {
+                return;
+            }
+            final View page = mAdapter.onCreatePage(mParent, mViewType);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // 在创建期间被取消了, 直接丢弃.
+                    if (mCancelled) {
+                        return;
+                    }
+                    if (mPendingRequests.get(mPosition) == CreateRequest.this) {
+                        mPendingRequests.remove(mPosition);
+                    }
+                    ArrayList<View> pages = mCreatedPages.get(mViewType);
+                    if (pages == null) {
+                        pages = new ArrayList<View>();
+                        mCreatedPages.put(mViewType, pages);
+                    }
+                    // 已经暂存了足够多的同类型页面, 直接丢弃.
+                    if (pages.size() >= MAX_CREATED_PAGES) {
+                        return;
+                    }
+                    pages.add(page);
+                    mCallback.onPageCreated(mPosition, mViewType);
+                }
+            });
+        }
+    }
+}
@@ -1,53 +1,234 @@
 package com.clevergump.my_viewpager_demo.widget;
 
 import android.content.Context;
-import android.os.Looper;
+import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.widget.Scroller;
+import android.view.ViewParent;
+import android.view.ViewStub;
 
+import java.util.ArrayList;
+
+import com.clevergump.my_viewpager_demo.R;
+import com.clevergump.my_viewpager_demo.image.PageBitmapCache;
 import com.clevergump.my_viewpager_demo.utils.DensityUtils;
+import com.clevergump.my_viewpager_demo.widget.paging.IncrementalPageLayout;
+import com.clevergump.my_viewpager_demo.widget.paging.PageOffsetIndex;
+import com.clevergump.my_viewpager_demo.widget.paging.PagerMath;
+import com.clevergump.my_viewpager_demo.widget.paging.PagerTouchTracker;
+import com.clevergump.my_viewpager_demo.widget.scroll.ScrollEngine;
+import com.clevergump.my_viewpager_demo.widget.scroll.SpringScrollEngine;
 
 /**
  * 版本5 (功能相对较完善, bug相对较少的版本). 添加了滑动冲突的解决措施, 可以内嵌 ListView 等.
  *
+ * 除了在 XML 中静态声明所有页面以外, 还可以通过 {@link #setAdapter(PageAdapter)} 设置一个适配器. 无论哪种方式,
+ * 都只有当前页面 ({@link #getCurrentItem()}) 及其左右 {@link #setOffscreenPageLimit(int)} 个页面会留在容器中参与
+ * 测量, 布局和绘制: 使用适配器时窗口以外的页面被销毁并回收; 静态声明的页面从第一次测量开始, 窗口以外的页面被移出
+ * 容器, 滑入窗口时再重新添加. 窗口的大小也可以通过 XML 属性 offscreenPageLimit 设置.
+ *
+ * 默认情况下, 所有页面排成一个 N 倍屏幕宽度的长条, 通过 scrollTo()/scrollBy() 移动整个容器. 通过
+ * {@link #setTranslationLayoutEnabled(boolean)} 可以切换为平移布局: 容器只有一个页面宽, 每个页面都摆放在原点,
+ * 再通过 translationX 移动到各自的位置上. 这样滑动就与长条的总宽度无关了.
+ *
+ * 使用适配器时, 页面停稳以后会利用主线程的空闲时间, 沿着最近的翻页方向提前准备窗口以外的页面 (创建, 绑定数据,
+ * 测量和布局), 它们滑入窗口时可以直接添加到容器中. 开始触摸或者播放动画时预加载立即让出主线程. 一次 fling
+ * 可能跨过好几页, 所以 fling 开始时就根据动画的目标位置准备好落点页面及其相邻的页面, 途中一闪而过的页面只显示
+ * 占位页面 ({@link PageAdapter#onCreatePlaceholderPage(ViewGroup)}). 适配器允许时
+ * ({@link PageAdapter#isAsyncPageCreationSupported(int)}), 窗口内还看不见的页面在子线程中创建, 创建好之前同样先显示
+ * 占位页面; 直到滑入视口时还没有创建好的页面才在主线程中同步创建.
+ *
+ * 页面可以有各自的宽度 (以容器宽度的倍数表示): 使用适配器时由 {@link PageAdapter#getPageWidth(int)} 给出, 静态
+ * 页面通过 XML 属性 layout_pageWidthFactor 指定. 页面的左边界保存在 {@link PageOffsetIndex} 中, 根据位置求左边界,
+ * 根据滑动位置求页面都是 O(log n) 的. 修改某一页的宽度后调用 {@link #notifyPageWidthChanged(int)}.
+ *
+ * 静态页面可以先声明为 {@link ViewStub}, 它始终算作一个页面 (宽度倍数等布局参数写在 ViewStub 上), 在滑入页面
+ * 窗口时, 或者在页面停稳后的空闲时间里被预加载到时, 才替换为它的 android:layout 所指定的布局. 这样 Activity 启动时
+ * 只需要 inflate 窗口内的页面. 需要在页面 inflate 以后访问其中的 View 时, 使用
+ * {@link ViewStub#setOnInflateListener(ViewStub.OnInflateListener)}.
+ *
+ * 支持水平方向的嵌套滚动: 作为子View时, 拖动中自己消费不了的距离 (已经到达第一页或最后一页) 和手指抬起时的 fling
+ * 会交给外层的滚动容器; 作为父View时, 页面中可以水平滚动的子View滚动到边界以后, 剩余的距离和 fling 由页面继续.
+ *
  * @author zhangzhiyi
  * @version 1.0
  * @createTime 2016/4/6 11:31
  * @projectName MyViewPagerDemo
  */
-public class MyViewPager5 extends ViewGroup {
+public class MyViewPager5 extends ViewGroup implements NestedScrollingParent, NestedScrollingChild {
+
+    private static final String TAG = "MyViewPager5";
 
+    // 当前页面左右两侧各自默认保留的页面数
+    private static final int DEFAULT_OFFSCREEN_PAGES = 1;
+
+    // 惯性滑动 (fling) 的减速度, 单位: dp/s². 用于根据手指抬起时的速度估算页面还能继续滑动多远.
+    private static final int FLING_DECELERATION_DP = 2500;
+
+    // 只有从按下到抬起滑动的距离超过该值 (单位: dp) 时, 才认为是一次 fling, 避免点击时的轻微抖动被当成 fling.
+    private static final int MIN_FLING_DISTANCE_DP = 25;
+
+    // 空闲时沿着翻页方向提前准备的窗口以外的页面数, 反方向只准备一页.
+    private static final int PRELOAD_AHEAD_PAGES = 2;
+
+    // 占位页面在 mAttachedPageTypes 中的类型. 适配器的页面类型都 >= 0.
+    private static final int PLACEHOLDER_VIEW_TYPE = -1;
+
+    private static final int NO_POSITION = -1;
+
+    // 宽度倍数为1的页面的宽度. 初始为屏幕宽度, 第一次测量以后就是容器的父View给出的宽度, 即视口的宽度.
     private int mScreenWidthPixels;
     private int mScreenHeightPixels;
-    private int mChildCount;
 
-    // visibility不是GONE的子View的总数
-    private int mNonGoneChildCount;
+    // 每个页面的左边界和宽度. mPageOffsetsDirty 为 true 时, 在下一次使用前根据页面总数和宽度重建.
+    private final PageOffsetIndex mPageOffsets = new PageOffsetIndex();
+    private boolean mPageOffsetsDirty = true;
+    private final PageOffsetIndex.WidthProvider mPageWidthProvider = new PageOffsetIndex.WidthProvider() {
+        @Override
+        public int getPageWidth(int position) {
+            return computePageWidth(position);
+        }
+    };
+
+    // 在 XML 中静态声明 (或者没有设置适配器时通过 addView() 添加) 的所有页面, 包括已经被移出容器的页面.
+    private final ArrayList<View> mStaticPages = new ArrayList<View>();
+
+    // 是否已经开始按页面窗口移出静态页面. 在第一次测量之前所有静态页面都留在容器中, 以便 findViewById() 能找到它们.
+    private boolean mStaticPagesWindowed;
+
+    // 正在按页面窗口添加或移出页面, 此时的 addView() 不是新增的静态页面, 移出的页面也没有被删除.
+    private boolean mPopulating;
+
+    // 通过 setOnHierarchyChangeListener() 设置的监听器. 容器自己监听子View的移除, 再转发给它.
+    private OnHierarchyChangeListener mOnHierarchyChangeListener;
+
+    // visibility不是GONE的静态页面, 下标即页面的位置.
+    // 尚未 inflate 的 ViewStub 即使是 GONE 也算作页面.
+    private final ArrayList<View> mNonGoneStaticPages = new ArrayList<View>();
+
+    // 触摸状态机, 负责拦截判断, 跟随手指移动以及手指抬起后目标页面的计算.
+    private PagerTouchTracker mTouchTracker;
+
+    // 发生 ACTION_DOWN 时相对于该控件的坐标, 用于找到按下位置上的子View.
+    private float mDownX;
+    private float mDownY;
+
+    // 嵌套滚动. 子View的 helper 在第一次使用时才创建, 因为父类的构造方法中就可能调用 setNestedScrollingEnabled().
+    private NestedScrollingChildHelper mNestedScrollingChildHelper;
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+    private final int[] mNestedScrollConsumed = new int[2];
+    private final int[] mNestedScrollOffset = new int[2];
+
+    // 作为父View时, 开始嵌套滚动时的页面和滑动位置.
+    private int mNestedScrollStartPage;
+    private int mNestedScrollStartScrollX;
+
+    // 作为父View时, 本次嵌套滚动是否已经决定了要停在哪一页.
+    private boolean mNestedScrollSettled;
+
+    // 平滑移动所使用的动画引擎. 动画时长由剩余距离和速度决定, 并且可以在动画过程中改变目标或者停在当前位置.
+    private ScrollEngine mScrollEngine;
+
+    // 按垂直同步信号驱动动画引擎, 每一帧推进一次滑动位置.
+    private PageAnimationDriver mAnimationDriver;
+
+    // 是否使用平移布局. 平移布局下容器本身不滑动 (getScrollX() 一直为0), 滑动位置记录在 mTranslationScrollX 中.
+    private boolean mTranslationLayoutEnabled;
+    private int mTranslationScrollX;
+
+    // 页面适配器. 为 null 时表示所有页面都是在 XML 中静态声明的子View.
+    private PageAdapter mAdapter;
+
+    // 当前页面左右两侧各自保留在容器中的页面数. 使用适配器和静态声明页面时都有效.
+    private int mOffscreenPageLimit = DEFAULT_OFFSCREEN_PAGES;
+
+    // 当前页面的位置, 即离当前滑动位置最近的页面的位置
+    private int mCurrentItem;
+
+    // 当前已经添加到容器中的页面, key 为页面的位置.
+    private final SparseArray<View> mAttachedPages = new SparseArray<View>();
 
-    // 上一次发生成功滑动事件 (成功滑动的意思是: 滑动距离大于mTouchSlop的滑动, 反之则认为是失败滑动, 失败滑动的事件
-    // 将会直接舍弃)后, 手指停止处的x坐标. 只有发生了成功滑动, 才会更新该变量的数值; 发生失败滑动, 将不更新该变量的数值.
-    private float mLastScrolledRawX;
+    // 当前已经添加到容器中的页面的类型, key 为页面的位置. 页面被移除后按该类型放入回收池.
+    private final SparseIntArray mAttachedPageTypes = new SparseIntArray();
 
-    // Android系统规定的一个滑动事件如果能被系统认可为滑动事件所必须滑动的最小距离. 也就是本文提到的成功滑动所
-    // 必须滑动的最小距离.
-    private int mTouchSlop;
+    // 空闲时提前准备好的, 还没有添加到容器中的页面及其类型, key 为页面的位置.
+    private final SparseArray<View> mPreparedPages = new SparseArray<View>();
+    private final SparseIntArray mPreparedPageTypes = new SparseIntArray();
 
-    private Scroller mScroller;
+    // 最近一次翻页的方向, 1 表示翻到了下一页, -1 表示翻到了上一页. 决定预加载哪一侧的页面.
+    private int mSwipeDirection = 1;
 
-    // 发生 ACTION_DOWN 时的 rawX, rawY.
-    private float mDownRawX;
-    private float mDownRawY;
+    // 空闲时预加载窗口以外的页面
+    private PagePreloader mPagePreloader;
 
-    // 发生 ACTION_DOWN 时所触摸的子 View的 index (从0开始).
-    private int mChildIndexWhenDown;
+    // 在子线程中创建页面. 窗口内还看不见的页面先显示占位页面, 创建好以后再换成真正的页面.
+    private final AsyncPageFactory mAsyncPageFactory = new AsyncPageFactory(this, new AsyncPageFactory.Callback() {
+        @Override
+        public void onPageCreated(int position, int viewType) {
+            // 在两帧之间被回调, 把等待中的占位页面换成刚创建好的页面.
+            if (mAdapter != null) {
+                populate();
+            }
+        }
+    });
+
+    // 正在进行的跨页动画 (例如 fling) 的落点页面. 没有跨页动画时为 NO_POSITION.
+    private int mFlingTargetPage = NO_POSITION;
+
+    // 暂时不用的占位页面
+    private final ArrayList<View> mPlaceholderPages = new ArrayList<View>();
+
+    // 增量布局: 只重新摆放窗口内请求过重新布局或者位置发生了变化的页面.
+    private final IncrementalPageLayout<View> mPageLayout = new IncrementalPageLayout<View>(
+            new IncrementalPageLayout.Host<View>() {
+                @Override
+                public boolean isLayoutRequested(View page) {
+                    return page.isLayoutRequested();
+                }
+
+                @Override
+                public void layoutPage(View page, int position, int pageLeft, int pageWidth) {
+                    MyViewPager5.this.layoutPage(page, position, pageLeft, pageWidth);
+                }
+            });
 
-    // 在某一次事件序列("一次事件序列"是指: 从某次手指按下到本次手指离开屏幕的过程)中, 发生拦截后是不是首次
-    // 进入onTouchEvent()方法.
-    private boolean mIsFirstEntryAfterInterceptingInThisEventSeries = true;
+    // 上次布局时容器的上下 padding, 变化时所有页面都要重新摆放.
+    private int mLayoutPaddingTop;
+    private int mLayoutPaddingBottom;
+
+    // 视口宽度变化以后, 在 onSizeChanged() 中让当前页面停回的位置: 滑动位置超出当前页面左边界的距离占当前页面
+    // 宽度的比例.
+    private boolean mSizeChangeAnchorPending;
+    private float mSizeChangeAnchorFraction;
+
+    // 使用适配器并且高度为 wrap_content 时, 最近一次根据真正的页面计算出的容器高度.
+    private int mWrapContentHeight;
+
+    // 最近一次测量时父容器给出的测量规格, 用于测量预加载的页面.
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+
+    // 页面回收池, 可以通过 setRecycledPagePool() 与其他 MyViewPager5 共用.
+    private RecycledPagePool mRecycledPagePool = new RecycledPagePool();
+
+    private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            dataSetChanged();
+        }
+    };
 
 
     public MyViewPager5(Context context) {
@@ -66,360 +247,1473 @@ public class MyViewPager5 extends ViewGroup {
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
         mScreenWidthPixels = DensityUtils.getScreenWidthPixels(context);
         mScreenHeightPixels = DensityUtils.getScreenHeightPixels(context);
-        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
-        mScroller = new Scroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchTracker = new PagerTouchTracker(new TouchHost(), configuration.getScaledTouchSlop(),
+                configuration.getScaledMinimumFlingVelocity(), configuration.getScaledMaximumFlingVelocity(),
+                DensityUtils.dip2px(context, MIN_FLING_DISTANCE_DP));
+        setNestedScrollingEnabled(true);
+        mScrollEngine = new SpringScrollEngine(SpringScrollEngine.DEFAULT_STIFFNESS,
+                DensityUtils.dip2px(context, FLING_DECELERATION_DP));
+        mAnimationDriver = new PageAnimationDriver(this, new PageAnimationDriver.Callback() {
+            @Override
+            public boolean onAnimationFrame(long frameTimeNanos) {
+                boolean running = mScrollEngine.computeOffset(frameTimeNanos);
+                // scrollTo() 和 setTranslationX() 都会自己请求一次重绘, 这里不需要再 invalidate().
+                // 动画的位置不能超出第一页和最后一页, 否则会露出页面以外的空白.
+                pageScrollTo(getPageOffsets().clampScrollX(Math.round(mScrollEngine.getPosition())));
+                if (!running) {
+                    // 页面停稳了, 利用接下来的空闲时间准备后面的页面.
+                    endFlingPrefetch();
+                    mPagePreloader.schedule();
+                }
+                return running;
+            }
+        });
+        // 无论通过哪一个 removeXxx() 方法移除子View, 都会回调 onChildViewRemoved().
+        super.setOnHierarchyChangeListener(new OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                if (mOnHierarchyChangeListener != null) {
+                    mOnHierarchyChangeListener.onChildViewAdded(parent, child);
+                }
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+                if (mAdapter == null && !mPopulating) {
+                    onStaticPageRemoved(child);
+                }
+                if (mOnHierarchyChangeListener != null) {
+                    mOnHierarchyChangeListener.onChildViewRemoved(parent, child);
+                }
+            }
+        });
+        mPagePreloader = new PagePreloader(new PagePreloader.Callback() {
+            @Override
+            public boolean isPagerBusy() {
+                return mTouchTracker.isBeingDragged() || mAnimationDriver.isRunning();
+            }
+
+            @Override
+            public boolean prepareNextPage() {
+                return MyViewPager5.this.prepareNextPage();
+            }
+        });
         if (attrs == null) {
             return;
         }
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MyViewPager5, defStyleAttr, 0);
+        setOffscreenPageLimit(a.getInt(R.styleable.MyViewPager5_offscreenPageLimit, DEFAULT_OFFSCREEN_PAGES));
+        a.recycle();
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        if (mChildCount == 0) {
-            mChildCount = getChildCount();
-            // 因为要进行多次测量, 所以将visibility为非GONE的child总数缓存起来, 以供下次测量时直接使用.
-            for (int i = 0; i < mChildCount; i++) {
-                View child = getChildAt(i);
-                int childVisibility = child.getVisibility();
-                if (childVisibility != GONE) {
-                    measureChild(child, widthMeasureSpec, heightMeasureSpec);
-                    mNonGoneChildCount++;
-                }
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        // 旋转屏幕, 分屏或者调整窗口大小以后, 页面宽度随着视口的宽度变化. 长条布局下容器自身的测量宽度是整个
+        // 长条的宽度, 所以视口的宽度取自父View给出的宽度.
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            onViewportWidthChanged(MeasureSpec.getSize(widthMeasureSpec));
+        }
+        // 静态页面的 visibility 可能发生了变化, 重新计算页面窗口.
+        if (mAdapter == null) {
+            mStaticPagesWindowed = true;
+            populateStaticPages(false);
+        }
+        // 子View只有窗口内的那几个页面. 测量规格没有变化, 自己也没有请求过重新布局的页面直接使用上次的测量结果.
+        // 每个页面按照自己的宽度测量.
+        for (int i = 0; i < mAttachedPages.size(); i++) {
+            View page = mAttachedPages.valueAt(i);
+            if (page.getVisibility() != GONE) {
+                measurePage(page, mAttachedPages.keyAt(i), heightMeasureSpec);
             }
         }
 
         int heightSpecMode = MeasureSpec.getMode(heightMeasureSpec);
         int heightSpecSize = MeasureSpec.getSize(heightMeasureSpec);
-        int width = mScreenWidthPixels * mNonGoneChildCount;
+        // 平移布局下容器只有一个页面宽, 否则是所有页面排成的长条的宽度.
+        int width = mTranslationLayoutEnabled ? mScreenWidthPixels : getPageOffsets().getTotalWidth();
         int height = heightSpecSize;
 
-        // 如果该 ViewGroup的高度指定为 wrap_content
+        // 如果该 ViewGroup的高度指定为 wrap_content, 高度取最高的页面的高度, 但不能超过上限值 heightSpecSize.
         if (heightSpecMode == MeasureSpec.AT_MOST) {
-            int childMaxHeightWithMargin = 0;
-            for (int i = 0; i < mChildCount; i++) {
-                View child = getChildAt(i);
-                int childVisibility = child.getVisibility();
-                if (childVisibility != GONE) {
-                    MarginLayoutParams mlp = (MarginLayoutParams) child.getLayoutParams();
-                    childMaxHeightWithMargin = Math.max(childMaxHeightWithMargin, child.getMeasuredHeight() + mlp.topMargin + mlp.bottomMargin);
-                    // 如果有某个child的高度超过了上限值 heightSpecSize, 则整个容器的高度就直接使用该上限值 heightSpecSize
-                    if (childMaxHeightWithMargin >= heightSpecSize) {
-                        height = heightSpecSize;
-                        setMeasuredDimension(width, height);
-                        return;
-                    }
-                }
+            height = Math.min(computeWrapContentHeight(heightMeasureSpec), heightSpecSize);
+        }
+
+        setMeasuredDimension(width, height);
+    }
+
+    /**
+     * 计算高度为 wrap_content 时容器的高度, 即所有页面中 measuredHeight + 上下 margin 最大的值. 静态页面中窗口以外的
+     * 页面也要测量, 否则容器的高度会随着页面滑入滑出窗口而变化. 尚未 inflate 的 ViewStub 还没有内容, 不参与计算.
+     * 使用适配器时窗口以外的页面并不存在, 容器的高度只取窗口内的页面, 会随着窗口的移动而变化. 占位页面的布局参数
+     * 通常是 MATCH_PARENT, 与真正的页面无关, 也不参与计算; 窗口内只有占位页面时 (例如 fling 途中) 沿用上次的高度.
+     */
+    private int computeWrapContentHeight(int heightMeasureSpec) {
+        int maxHeight = 0;
+        boolean measuredPage = false;
+        for (int i = 0; i < mAttachedPages.size(); i++) {
+            View page = mAttachedPages.valueAt(i);
+            if (page.getVisibility() != GONE
+                    && mAttachedPageTypes.get(mAttachedPages.keyAt(i)) != PLACEHOLDER_VIEW_TYPE) {
+                maxHeight = Math.max(maxHeight, getPageHeightWithMargins(page));
+                measuredPage = true;
+            }
+        }
+        if (mAdapter != null) {
+            if (measuredPage) {
+                mWrapContentHeight = maxHeight;
+            }
+            return mWrapContentHeight;
+        }
+        for (int position = 0; position < mNonGoneStaticPages.size(); position++) {
+            View page = mNonGoneStaticPages.get(position);
+            if (page.getParent() == this || page instanceof ViewStub) {
+                continue;
             }
+            // 与预加载的页面一样, 测量以后在原点摆放一次, 清除页面的重新布局标记, 之后测量规格不变时直接使用
+            // 上次的测量结果. 页面滑入窗口以后会重新摆放到自己的位置上.
+            if (measurePage(page, position, heightMeasureSpec)) {
+                page.layout(0, 0, page.getMeasuredWidth(), page.getMeasuredHeight());
+            }
+            maxHeight = Math.max(maxHeight, getPageHeightWithMargins(page));
+        }
+        return maxHeight;
+    }
+
+    private static int getPageHeightWithMargins(View page) {
+        MarginLayoutParams mlp = (MarginLayoutParams) page.getLayoutParams();
+        return page.getMeasuredHeight() + mlp.topMargin + mlp.bottomMargin;
+    }
 
-            // 每一个child的 measuredHeight + mlp.topMargin + mlp.bottomMargin 都小于 heightSpecSize, 那么height就取 childMaxHeightWithMargin
-            height = childMaxHeightWithMargin;
+    /**
+     * 视口的宽度发生变化时更新页面宽度. 页面的左边界在下一次使用前重建, 页面在接下来的测量中按新的宽度重新测量,
+     * 不会被销毁和重新创建. 当前页面在 {@link #onSizeChanged(int, int, int, int)} 中停回原来的位置.
+     */
+    private void onViewportWidthChanged(int viewportWidth) {
+        if (viewportWidth <= 0 || viewportWidth == mScreenWidthPixels) {
+            return;
         }
+        // 同一次布局之前可能测量多次, 只在第一次宽度变化时记下当前页面的位置.
+        if (!mSizeChangeAnchorPending && getPageCount() > 0) {
+            PageOffsetIndex offsets = getPageOffsets();
+            int currentItem = PagerMath.clampPage(mCurrentItem, offsets.getPageCount());
+            mSizeChangeAnchorFraction = (getPageScrollX() - offsets.getPageLeft(currentItem))
+                    / (float) offsets.getPageWidth(currentItem);
+            mSizeChangeAnchorPending = true;
+        }
+        mScreenWidthPixels = viewportWidth;
+        mPageOffsetsDirty = true;
+        mPageLayout.invalidateAll();
+    }
 
-        setMeasuredDimension(width, height);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (!mSizeChangeAnchorPending) {
+            return;
+        }
+        mSizeChangeAnchorPending = false;
+        // 原来的动画终点是按旧的页面宽度计算的, 直接停下.
+        if (!mScrollEngine.isFinished()) {
+            stopScrollAnimation();
+        }
+        PageOffsetIndex offsets = getPageOffsets();
+        if (offsets.getPageCount() == 0) {
+            return;
+        }
+        int currentItem = PagerMath.clampPage(mCurrentItem, offsets.getPageCount());
+        int scrollX = offsets.getPageLeft(currentItem)
+                + Math.round(mSizeChangeAnchorFraction * offsets.getPageWidth(currentItem));
+        pageScrollTo(offsets.clampScrollX(scrollX));
+        if (mTranslationLayoutEnabled) {
+            updatePageTranslations();
+        }
     }
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        if (mChildCount == 0) {
-            mChildCount = getChildCount();
+        // 容器的尺寸或者 padding 变了, 所有页面的上下边界都可能变化.
+        if (changed || getPaddingTop() != mLayoutPaddingTop || getPaddingBottom() != mLayoutPaddingBottom) {
+            mPageLayout.invalidateAll();
+            mLayoutPaddingTop = getPaddingTop();
+            mLayoutPaddingBottom = getPaddingBottom();
+        }
+        // 只需要摆放窗口内的页面, 其中没有变化的页面沿用上次摆放的结果.
+        PageOffsetIndex offsets = getPageOffsets();
+        mPageLayout.beginPass();
+        for (int i = 0; i < mAttachedPages.size(); i++) {
+            View page = mAttachedPages.valueAt(i);
+            if (page.getVisibility() != GONE) {
+                int position = mAttachedPages.keyAt(i);
+                mPageLayout.layoutPage(page, position, offsets.getPageLeft(position), offsets.getPageWidth(position));
+            }
+        }
+        mPageLayout.endPass();
+    }
+
+    /**
+     * 按照第 position 个页面的宽度测量一个页面. 如果上次测量该页面时的测量规格与这次相同, 并且之后该页面 (或者
+     * 它的子View) 没有调用过 requestLayout(), 测量结果不会变化, 就跳过这次测量. 新添加的页面, 从 GONE 变为可见的
+     * 页面 (setVisibility() 会调用 requestLayout()), 宽度变化了的页面以及内容发生了变化的页面都会重新测量.
+     * @return 是否真的重新测量了
+     */
+    private boolean measurePage(View page, int position, int heightMeasureSpec) {
+        int widthMeasureSpec = MeasureSpec.makeMeasureSpec(getPageOffsets().getPageWidth(position),
+                MeasureSpec.EXACTLY);
+        PageLayoutParams lp = (PageLayoutParams) page.getLayoutParams();
+        if (lp.mMeasured && !page.isLayoutRequested()
+                && lp.mWidthMeasureSpec == widthMeasureSpec && lp.mHeightMeasureSpec == heightMeasureSpec) {
+            return false;
         }
+        measureChild(page, widthMeasureSpec, heightMeasureSpec);
+        lp.mMeasured = true;
+        lp.mWidthMeasureSpec = widthMeasureSpec;
+        lp.mHeightMeasureSpec = heightMeasureSpec;
+        return true;
+    }
+
+    /**
+     * 将给定的页面摆放到第 pageIndex 个页面的位置上. 平移布局下页面摆放在原点, 再通过 translationX 移动到该位置.
+     * @param child 要摆放的页面
+     * @param pageIndex 页面的位置 (从0开始)
+     * @param pageLeft 该位置在长条中的左边界
+     * @param pageWidth 该位置的页面宽度
+     */
+    private void layoutPage(View child, int pageIndex, int pageLeft, int pageWidth) {
         // 该 ViewGroup的 padding
-        int myPaddingLeft = getPaddingLeft();
-        int myPaddingRight = getPaddingRight();
         int myPaddingTop = getPaddingTop();
         int myPaddingBottom = getPaddingBottom();
-
-        int childLeft = 0;
-        int childRight = 0;
-        int childTop = 0;
-        int childBottom = 0;
-
         int myMeasuredHeight = getMeasuredHeight();
-        int nextNonGoneChildIndex = 0;
 
-        for (int i = 0; i < mChildCount; i++) {
-            View child = getChildAt(i);
-            if (child.getVisibility() != GONE) {
-                MarginLayoutParams childMarginLayoutParams = (MarginLayoutParams) child.getLayoutParams();
-                int childMarginLeft = childMarginLayoutParams.leftMargin;
-                int childMarginRight = childMarginLayoutParams.rightMargin;
-                int childMarginTop = childMarginLayoutParams.topMargin;
-                int childMarginBottom = childMarginLayoutParams.bottomMargin;
+        MarginLayoutParams childMarginLayoutParams = (MarginLayoutParams) child.getLayoutParams();
+        int childMarginLeft = childMarginLayoutParams.leftMargin;
+        int childMarginRight = childMarginLayoutParams.rightMargin;
+        int childMarginTop = childMarginLayoutParams.topMargin;
+        int childMarginBottom = childMarginLayoutParams.bottomMargin;
 
-                childTop = myPaddingTop + childMarginTop;
-                childBottom = myMeasuredHeight - myPaddingBottom - childMarginBottom;
-                childLeft = mScreenWidthPixels * nextNonGoneChildIndex + childMarginLeft;
-                childRight = mScreenWidthPixels * (nextNonGoneChildIndex + 1) - childMarginRight;
+        int childTop = myPaddingTop + childMarginTop;
+        int childBottom = myMeasuredHeight - myPaddingBottom - childMarginBottom;
+        if (mTranslationLayoutEnabled) {
+            child.setTranslationX(pageLeft - mTranslationScrollX);
+            pageLeft = 0;
+        }
+        int childLeft = pageLeft + childMarginLeft;
+        int childRight = pageLeft + pageWidth - childMarginRight;
 
-                // 仅供测试.
-//                if (i > 0) {
-//                    childLeft -= 900;
-//                    childRight -= 900;
-//                }
+        child.layout(childLeft, childTop, childRight, childBottom);
+    }
 
-                child.layout(childLeft, childTop, childRight, childBottom);
-                nextNonGoneChildIndex ++;
+    /**
+     * 设置是否使用平移布局. 平移布局下每个页面都摆放在原点, 通过 translationX 移动到各自的位置上, 滑动时只需要
+     * 修改窗口内页面的 translationX, 页面内容没有变化时不需要重新录制它们的 display list. 容器的宽度也只有一个
+     * 页面宽, 不再受到 View 测量尺寸 24 位上限 (MEASURED_SIZE_MASK) 的限制.
+     * @param enabled true 表示使用平移布局, false 表示使用默认的长条布局.
+     */
+    public void setTranslationLayoutEnabled(boolean enabled) {
+        if (enabled == mTranslationLayoutEnabled) {
+            return;
+        }
+        int pageScrollX = getPageScrollX();
+        mTranslationLayoutEnabled = enabled;
+        if (enabled) {
+            mTranslationScrollX = pageScrollX;
+            scrollTo(0, getScrollY());
+        } else {
+            mTranslationScrollX = 0;
+            int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                getChildAt(i).setTranslationX(0);
             }
+            scrollTo(pageScrollX, getScrollY());
+        }
+        mPageLayout.invalidateAll();
+        requestLayout();
+    }
+
+    public boolean isTranslationLayoutEnabled() {
+        return mTranslationLayoutEnabled;
+    }
+
+    /**
+     * @return 当前的滑动位置, 即第0个页面的左边界到容器左边界的距离. 无论是否使用平移布局都可以使用.
+     */
+    public int getPageScrollX() {
+        return mTranslationLayoutEnabled ? mTranslationScrollX : getScrollX();
+    }
+
+    /**
+     * 滑动到给定的位置. 长条布局下滑动整个容器, 平移布局下修改每个页面的 translationX.
+     */
+    private void pageScrollTo(int x) {
+        if (!mTranslationLayoutEnabled) {
+            scrollTo(x, getScrollY());
+            return;
+        }
+        if (x == mTranslationScrollX) {
+            return;
         }
+        mTranslationScrollX = x;
+        updatePageTranslations();
+        onPageScrollChanged(x);
     }
 
-    // 要想使用 margin, 就必须在该方法内返回一个 MarginLayoutParams 的实例.
+    /**
+     * 平移布局下, 根据当前的滑动位置更新每个页面的 translationX.
+     */
+    private void updatePageTranslations() {
+        PageOffsetIndex offsets = getPageOffsets();
+        for (int i = 0; i < mAttachedPages.size(); i++) {
+            mAttachedPages.valueAt(i).setTranslationX(
+                    offsets.getPageLeft(mAttachedPages.keyAt(i)) - mTranslationScrollX);
+        }
+    }
+
+    /**
+     * @return 页面左边界的索引. 页面总数或者页面宽度发生过变化时先重建.
+     */
+    private PageOffsetIndex getPageOffsets() {
+        if (mPageOffsetsDirty) {
+            mPageOffsetsDirty = false;
+            mPageOffsets.rebuild(getPageCount(), mPageWidthProvider);
+            mPageOffsets.setViewportWidth(mScreenWidthPixels);
+        }
+        return mPageOffsets;
+    }
+
+    /**
+     * @return 第 position 个页面的宽度, 即它的宽度倍数乘以容器的宽度, 至少为1像素.
+     */
+    private int computePageWidth(int position) {
+        float widthFactor = mAdapter != null ? mAdapter.getPageWidth(position)
+                : ((PageLayoutParams) mNonGoneStaticPages.get(position).getLayoutParams()).pageWidthFactor;
+        return Math.max(1, Math.round(widthFactor * mScreenWidthPixels));
+    }
+
+    /**
+     * 第 position 个页面的宽度倍数 ({@link PageAdapter#getPageWidth(int)} 或者静态页面的
+     * {@link PageLayoutParams#pageWidthFactor}) 发生变化后调用. 只更新该页面在索引中的宽度, 后面页面的左边界随之
+     * 移动, 不需要重建索引. 当前页面保持停留在原来的位置上.
+     * @param position 页面的位置
+     */
+    public void notifyPageWidthChanged(int position) {
+        if (mPageOffsetsDirty || position < 0 || position >= mPageOffsets.getPageCount()) {
+            requestLayout();
+            return;
+        }
+        // 记下当前页面内的偏移量, 宽度变化以后当前页面的左边界可能移动了.
+        int scrollX = getPageScrollX();
+        int offsetInCurrentPage = scrollX - mPageOffsets.getPageLeft(mCurrentItem);
+        mPageOffsets.setPageWidth(position, computePageWidth(position));
+        if (position < mCurrentItem) {
+            stopScrollAnimation();
+            pageScrollTo(mPageOffsets.clampScrollX(mPageOffsets.getPageLeft(mCurrentItem) + offsetInCurrentPage));
+        }
+        if (mTranslationLayoutEnabled) {
+            updatePageTranslations();
+        }
+        requestLayout();
+    }
+
+    // 要想使用 margin, 就必须在该方法内返回一个 MarginLayoutParams 的实例. 这里返回的是它的子类
+    // PageLayoutParams, 其中还记录了页面的测量缓存.
     @Override
     public LayoutParams generateLayoutParams(AttributeSet attrs) {
-        return new MarginLayoutParams(getContext(), attrs);
+        return new PageLayoutParams(getContext(), attrs);
     }
 
+    // 由适配器创建的页面如果没有指定 LayoutParams, 或者指定的不是 PageLayoutParams, 在添加到该容器时也要
+    // 转换成 PageLayoutParams, 否则在 onMeasure() 和 onLayout() 中强转时会出错.
     @Override
-    public boolean onInterceptTouchEvent(MotionEvent event) {
-        boolean intercept = false;
-        float rawX = event.getRawX();
-        float rawY = event.getRawY();
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                if (!mScroller.isFinished()) {
-                    mScroller.abortAnimation();
-                }
-                mDownRawX = rawX;
-                mDownRawY = rawY;
-                calcFingerTouchedChildIndexWhenActionDown();
-                break;
-            case MotionEvent.ACTION_MOVE:
-                float dx = rawX - mDownRawX;
-                float dy = rawY - mDownRawY;
-                // 滑动距离太短, 直接不拦截.
-                if (!isScrollExceedingTouchSlop(caclSquareRoot(dx, dy))) {
-                    return false;
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new PageLayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(LayoutParams p) {
+        if (p instanceof MarginLayoutParams) {
+            return new PageLayoutParams((MarginLayoutParams) p);
+        }
+        return new PageLayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(LayoutParams p) {
+        return p instanceof PageLayoutParams;
+    }
+
+    /**
+     * 设置页面适配器. 设置后, 在 XML 中静态声明的子View将全部被移除, 改由适配器来提供页面.
+     * @param adapter 页面适配器, 传入 null 表示移除当前的适配器.
+     */
+    public void setAdapter(PageAdapter adapter) {
+        if (mAdapter != null) {
+            mAdapter.unregisterDataSetObserver(mDataSetObserver);
+            destroyAllPages();
+            discardPreparedPages();
+            mPlaceholderPages.clear();
+            mAsyncPageFactory.cancelAll();
+            mAdapter = null;
+        }
+        mPagePreloader.cancel();
+        removeAllViews();
+        mStaticPages.clear();
+        mNonGoneStaticPages.clear();
+        mAttachedPages.clear();
+        mPageOffsetsDirty = true;
+        mCurrentItem = 0;
+        mWrapContentHeight = 0;
+        stopScrollAnimation();
+        mTranslationScrollX = 0;
+        scrollTo(0, 0);
+
+        mAdapter = adapter;
+        if (mAdapter != null) {
+            mAdapter.registerDataSetObserver(mDataSetObserver);
+            populate();
+        }
+        requestLayout();
+    }
+
+    public PageAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * 设置页面回收池. 多个使用相同页面类型的 MyViewPager5 可以共用同一个回收池.
+     * @param pool 页面回收池, 不能为 null.
+     */
+    public void setRecycledPagePool(RecycledPagePool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("RecycledPagePool must not be null");
+        }
+        mRecycledPagePool = pool;
+    }
+
+    public RecycledPagePool getRecycledPagePool() {
+        return mRecycledPagePool;
+    }
+
+    /**
+     * @return 使用子线程中创建好的页面的次数. 这些页面不经过回收池, 与回收池的命中/未命中次数分开统计.
+     */
+    public int getAsyncPageHitCount() {
+        return mAsyncPageFactory.getUsedPageCount();
+    }
+
+    /**
+     * 设置当前页面左右两侧各自保留的页面数. 窗口以外的页面将会被销毁, 滑入窗口时再重新创建.
+     * 数值越大, 滑动时越不容易出现页面还没准备好的情况, 但占用的内存也越多.
+     * @param limit 当前页面左右两侧各自保留的页面数, 最小为1.
+     */
+    public void setOffscreenPageLimit(int limit) {
+        if (limit < DEFAULT_OFFSCREEN_PAGES) {
+            Log.w(TAG, "Requested offscreen page limit " + limit + " too small; defaulting to "
+                    + DEFAULT_OFFSCREEN_PAGES);
+            limit = DEFAULT_OFFSCREEN_PAGES;
+        }
+        if (limit != mOffscreenPageLimit) {
+            mOffscreenPageLimit = limit;
+            populate();
+        }
+    }
+
+    /**
+     * @return 当前页面的位置, 即离当前滑动位置最近的页面的位置.
+     */
+    public int getCurrentItem() {
+        return mCurrentItem;
+    }
+
+    /**
+     * 平滑移动到给定的页面.
+     * @param item 页面的位置, 超出范围时移动到第一页或最后一页.
+     */
+    public void setCurrentItem(int item) {
+        setCurrentItem(item, true);
+    }
+
+    /**
+     * 移动到给定的页面.
+     * @param item 页面的位置, 超出范围时移动到第一页或最后一页.
+     * @param smoothScroll true 表示平滑移动过去, false 表示立即跳过去.
+     */
+    public void setCurrentItem(int item, boolean smoothScroll) {
+        int pageCount = getPageCount();
+        if (pageCount == 0) {
+            return;
+        }
+        item = PagerMath.clampPage(item, pageCount);
+        // 页面比视口窄时, 最后几个页面停在靠右对齐的位置上.
+        PageOffsetIndex offsets = getPageOffsets();
+        int targetScrollX = offsets.clampScrollX(offsets.getPageLeft(item));
+        if (smoothScroll) {
+            smoothScrollBy(getPageScrollX() - targetScrollX, 0);
+        } else {
+            stopScrollAnimation();
+            pageScrollTo(targetScrollX);
+        }
+    }
+
+    public int getOffscreenPageLimit() {
+        return mOffscreenPageLimit;
+    }
+
+    /**
+     * 根据当前页面和 mOffscreenPageLimit 计算出页面窗口, 销毁窗口以外的页面, 并创建窗口内还不存在的页面.
+     */
+    private void populate() {
+        if (mAdapter == null) {
+            if (mStaticPagesWindowed) {
+                populateStaticPages(true);
+                mPagePreloader.schedule();
+            }
+            return;
+        }
+        int pageCount = mAdapter.getCount();
+        int firstPosition = PagerMath.getFirstWindowPage(mCurrentItem, mOffscreenPageLimit);
+        int lastPosition = PagerMath.getLastWindowPage(mCurrentItem, mOffscreenPageLimit, pageCount);
+
+        // 离开了窗口的页面不再等待子线程创建.
+        mAsyncPageFactory.cancelOutside(firstPosition, lastPosition);
+
+        // 先销毁窗口以外的页面
+        for (int i = mAttachedPages.size() - 1; i >= 0; i--) {
+            int position = mAttachedPages.keyAt(i);
+            if (position < firstPosition || position > lastPosition) {
+                View page = mAttachedPages.valueAt(i);
+                mAttachedPages.removeAt(i);
+                destroyPage(page, position);
+            }
+        }
+
+        // 再创建窗口内还不存在的页面. fling 途中一闪而过的页面只添加占位页面, 不再需要占位的页面换成真正的页面.
+        // 还看不见的页面如果可以在子线程中创建, 也先添加占位页面.
+        for (int position = firstPosition; position <= lastPosition; position++) {
+            View page = mAttachedPages.get(position);
+            if (page != null && mAttachedPageTypes.get(position) != PLACEHOLDER_VIEW_TYPE) {
+                continue;
+            }
+            boolean placeholder = isPassedOverPage(position) || waitForAsyncPage(position);
+            if (page != null && !placeholder) {
+                mAttachedPages.remove(position);
+                destroyPage(page, position);
+                page = null;
+            }
+            if (page == null) {
+                if (placeholder) {
+                    addPlaceholderPage(position);
+                } else {
+                    addPage(position);
                 }
+            }
+        }
+
+        // 离当前页面和 fling 的落点都太远, 已经不会被用到的预加载页面放回回收池.
+        for (int i = mPreparedPages.size() - 1; i >= 0; i--) {
+            int position = mPreparedPages.keyAt(i);
+            boolean nearFlingTarget = mFlingTargetPage != NO_POSITION
+                    && Math.abs(position - mFlingTargetPage) <= mOffscreenPageLimit;
+            if (!nearFlingTarget && Math.abs(position - mCurrentItem) > mOffscreenPageLimit + PRELOAD_AHEAD_PAGES) {
+                discardPreparedPage(i);
+            }
+        }
+        mPagePreloader.schedule();
+    }
 
-                // 此时的滑动距离已经大于了 mTouchSlop
+    /**
+     * @return 给定位置的页面是否只是在 fling 途中一闪而过: 离落点太远, 也没有提前准备好.
+     */
+    private boolean isPassedOverPage(int position) {
+        return mFlingTargetPage != NO_POSITION && Math.abs(position - mFlingTargetPage) > mOffscreenPageLimit
+                && mPreparedPages.get(position) == null;
+    }
 
-                // 如果主要是向水平方向滑动, 那么就拦截
-                if (Math.abs(dx) >= Math.abs(dy)) {
-                    intercept = true;
+    /**
+     * 平滑移动开始 (或改变目标) 以后, 根据动画引擎的目标位置计算落点页面. 落点在页面窗口以外时, 立即准备落点
+     * 页面及其左右 mOffscreenPageLimit 个页面, 使它们的图片在动画进行中就开始解码.
+     */
+    private void startFlingPrefetch() {
+        if (mAdapter == null || mScreenWidthPixels <= 0) {
+            return;
+        }
+        int pageCount = mAdapter.getCount();
+        int targetPage = getPageOffsets().getNearestPage(Math.round(mScrollEngine.getTarget()));
+        if (Math.abs(targetPage - mCurrentItem) <= mOffscreenPageLimit) {
+            endFlingPrefetch();
+            return;
+        }
+        mFlingTargetPage = targetPage;
+        int firstPosition = PagerMath.getFirstWindowPage(targetPage, mOffscreenPageLimit);
+        int lastPosition = PagerMath.getLastWindowPage(targetPage, mOffscreenPageLimit, pageCount);
+        // 先准备落点页面, 再由近及远准备相邻的页面: 偏移量依次为 0, -1, 1, -2, 2...
+        for (int i = 0; i <= 2 * mOffscreenPageLimit; i++) {
+            int position = targetPage + (i + 1) / 2 * (i % 2 == 0 ? 1 : -1);
+            if (position >= firstPosition && position <= lastPosition
+                    && mAttachedPages.get(position) == null && mPreparedPages.get(position) == null) {
+                preparePage(position);
+            }
+        }
+    }
+
+    /**
+     * 跨页动画结束或被打断, 窗口内的占位页面换成真正的页面.
+     */
+    private void endFlingPrefetch() {
+        if (mFlingTargetPage != NO_POSITION) {
+            mFlingTargetPage = NO_POSITION;
+            populate();
+        }
+    }
+
+    /**
+     * 按可能性从高到低找到一个窗口以外还没有准备好的页面, 提前创建并绑定数据, 再按照容器的尺寸测量和布局,
+     * 使页面中等待布局完成的图片开始解码. 静态页面只需要 inflate 尚未 inflate 的 ViewStub.
+     * @return 是否准备了一个页面
+     */
+    private boolean prepareNextPage() {
+        if (mLastWidthMeasureSpec == 0) {
+            return false;
+        }
+        if (mAdapter == null) {
+            return mStaticPagesWindowed && prepareNextStubPage();
+        }
+        int pageCount = mAdapter.getCount();
+        for (int rank = 0; rank <= PRELOAD_AHEAD_PAGES; rank++) {
+            int position = PagerMath.getPreloadPage(rank, mCurrentItem, mOffscreenPageLimit, mSwipeDirection,
+                    PRELOAD_AHEAD_PAGES);
+            if (position < 0 || position >= pageCount || mPreparedPages.get(position) != null) {
+                continue;
+            }
+            preparePage(position);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 静态页面的预加载: 按可能性从高到低找到一个窗口以外还没有 inflate 的 ViewStub, 把它替换为真正的页面并测量.
+     * @return 是否 inflate 了一个页面
+     */
+    private boolean prepareNextStubPage() {
+        int pageCount = mNonGoneStaticPages.size();
+        for (int rank = 0; rank <= PRELOAD_AHEAD_PAGES; rank++) {
+            int position = PagerMath.getPreloadPage(rank, mCurrentItem, mOffscreenPageLimit, mSwipeDirection,
+                    PRELOAD_AHEAD_PAGES);
+            if (position < 0 || position >= pageCount || !(mNonGoneStaticPages.get(position) instanceof ViewStub)) {
+                continue;
+            }
+            View page = inflateStubPage(position);
+            if (page.getVisibility() != GONE) {
+                measurePage(page, position, mLastHeightMeasureSpec);
+                page.layout(0, 0, page.getMeasuredWidth(), page.getMeasuredHeight());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 创建并绑定给定位置的页面, 按照容器的尺寸测量和布局以后放入 mPreparedPages, 暂不添加到容器中.
+     */
+    private void preparePage(int position) {
+        int viewType = mAdapter.getPageViewType(position);
+        View page = obtainPage(position, viewType);
+        LayoutParams params = page.getLayoutParams();
+        if (params == null) {
+            page.setLayoutParams(generateDefaultLayoutParams());
+        } else if (!checkLayoutParams(params)) {
+            page.setLayoutParams(generateLayoutParams(params));
+        }
+        if (mLastWidthMeasureSpec != 0) {
+            measurePage(page, position, mLastHeightMeasureSpec);
+            page.layout(0, 0, page.getMeasuredWidth(), page.getMeasuredHeight());
+        }
+        mPreparedPages.put(position, page);
+        mPreparedPageTypes.put(position, viewType);
+    }
+
+    /**
+     * 把第 index 个预加载的页面放回回收池.
+     */
+    private void discardPreparedPage(int index) {
+        int position = mPreparedPages.keyAt(index);
+        View page = mPreparedPages.valueAt(index);
+        mAdapter.onPageDestroyed(page, position);
+        mRecycledPagePool.putRecycledPage(mPreparedPageTypes.get(position), page);
+        mPreparedPageTypes.delete(position);
+        mPreparedPages.removeAt(index);
+    }
+
+    private void discardPreparedPages() {
+        for (int i = mPreparedPages.size() - 1; i >= 0; i--) {
+            discardPreparedPage(i);
+        }
+    }
+
+    /**
+     * 没有设置适配器时, 把窗口内的静态页面添加到容器中, 把窗口以外的静态页面移出容器. visibility为GONE的页面不占
+     * 位置, 但仍然留在容器中, 这样它再次变为可见时可以通过 requestLayout() 通知该容器.
+     * @param requestLayout 页面发生变化时是否请求重新布局. 在 onMeasure() 中调用时不需要.
+     */
+    private void populateStaticPages(boolean requestLayout) {
+        // 在 onMeasure() 中调用时, 页面的 visibility 或者宽度倍数可能变化了, 重新建立页面索引.
+        if (!requestLayout) {
+            mNonGoneStaticPages.clear();
+            for (int i = 0; i < mStaticPages.size(); i++) {
+                View page = mStaticPages.get(i);
+                if (!isGoneStaticPage(page)) {
+                    mNonGoneStaticPages.add(page);
                 }
-                break;
+            }
+            mPageOffsetsDirty = true;
         }
+        int nonGoneCount = mNonGoneStaticPages.size();
+        int firstPosition = PagerMath.getFirstWindowPage(mCurrentItem, mOffscreenPageLimit);
+        int lastPosition = PagerMath.getLastWindowPage(mCurrentItem, mOffscreenPageLimit, nonGoneCount);
 
-        return intercept;
+        // 滑入窗口的 ViewStub 先替换为真正的页面, 窗口内的页面都是已经 inflate 过的, 测量 (包括 wrap_content 的
+        // 高度) 和布局时不会遇到 ViewStub.
+        boolean changed = false;
+        mAttachedPages.clear();
+        for (int position = firstPosition; position <= lastPosition; position++) {
+            View page = mNonGoneStaticPages.get(position);
+            if (page instanceof ViewStub) {
+                page = inflateStubPage(position);
+                changed = true;
+            }
+            mAttachedPages.put(position, page);
+        }
+        mPopulating = true;
+        for (int i = 0; i < mStaticPages.size(); i++) {
+            View page = mStaticPages.get(i);
+            boolean attached = page.getParent() == this;
+            boolean inWindow = isGoneStaticPage(page) || mAttachedPages.indexOfValue(page) >= 0;
+            if (inWindow && !attached) {
+                addViewInLayout(page, -1, page.getLayoutParams(), true);
+                changed = true;
+            } else if (!inWindow && attached) {
+                removeViewInLayout(page);
+                changed = true;
+            }
+        }
+        mPopulating = false;
+        if (changed) {
+            if (mTranslationLayoutEnabled) {
+                updatePageTranslations();
+            }
+            if (requestLayout) {
+                requestLayout();
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * @return 是否是 GONE 的静态页面. GONE 的页面不占位置, 一直留在容器中. 尚未 inflate 的 ViewStub 不算.
+     */
+    private boolean isGoneStaticPage(View page) {
+        return page.getVisibility() == GONE && !(page instanceof ViewStub);
     }
 
     /**
-     * 计算给定的两个数的平方和的平方根
+     * 把第 position 个静态页面 (一个 ViewStub) 替换为它所指定的布局. 新页面沿用 ViewStub 的布局参数, 添加到容器中与否
+     * 也与 ViewStub 相同. ViewStub 的 OnInflateListener 会被回调.
+     * @return 替换后的页面
      */
-    private float caclSquareRoot(float dx, float dy) {
-        return (float) Math.pow(Math.pow(dx, 2) + Math.pow(dy, 2), 0.5);
+    private View inflateStubPage(int position) {
+        ViewStub stub = (ViewStub) mNonGoneStaticPages.get(position);
+        boolean populating = mPopulating;
+        mPopulating = true;
+        // ViewStub 必须在父容器中才能 inflate.
+        boolean attached = stub.getParent() == this;
+        if (!attached) {
+            addViewInLayout(stub, -1, stub.getLayoutParams(), true);
+        }
+        View page = stub.inflate();
+        if (!attached) {
+            removeViewInLayout(page);
+        }
+        mPopulating = populating;
+        mStaticPages.set(mStaticPages.indexOf(stub), page);
+        mNonGoneStaticPages.set(position, page);
+        return page;
     }
 
+    // 没有设置适配器时添加的子View都是静态页面, 按添加的顺序排列.
     @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        float currRawX = event.getRawX();
-
-        // 如果这是本次事件序列中发生拦截后首次进入该方法, 那么必须设置 mLastScrolledRawX 的值为本次按下时的坐标
-        // mDownRawX. 如果不设置, 将会出错, 因为不设置的话, 该变量将使用默认值0, 这将导致计算出的 dx值与手指实际
-        // 滑动的距离差不符. 而添加该判断条件, 表示本次事件序列中, 在拦截后只有首次进入该方法时, 才会设置
-        // mLastScrolledRawX 的值为按下时的坐标, 由于在首次进入该方法以后, 最终会在该方法体的最后一行更新
-        // mLastScrolledRawX 的值为手指当前滑动到的新位置的坐标(而不再是原先按下时的位置坐标), 那么在本次事件序列
-        // 中的第2次, 第3次...进入该方法时, 就不能再将 mLastScrolledRawX 的值设置为最初按下时的位置坐标了. 但是
-        // 需要在本次事件序列结束后, 再次重置 mIsFirstEntryAfterInterceptingInThisEventSeries 的值为true, 用于
-        // 为下一事件序列做准备. 所以, 需要在 ACTION_UP 中做这个重置的工作.
-        if (mIsFirstEntryAfterInterceptingInThisEventSeries) {
-            mIsFirstEntryAfterInterceptingInThisEventSeries = false;
-            mLastScrolledRawX = mDownRawX;
-        }
-
-        // 本次事件和上次成功发生移动的事件相比, 在x方向上移动的位置坐标差.
-        float dx = currRawX - mLastScrolledRawX;
-
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                // 如果上一次的平滑移动还没有结束, 那么就让其立即结束, 立即移动到目标位置
-                if (!mScroller.isFinished()) {
-                    mScroller.abortAnimation();
-                }
-                break;
-            case MotionEvent.ACTION_MOVE:
-                // 如果本次滑动距离小于 mTouchSlop, 则什么都不执行, 也不会更新 mLastScrolledRawX 的数值,
-                // 而是直接返回 true 表示消费掉了本次事件, 而直接进入到下一次事件的响应准备中.
-                if (!isScrollExceedingTouchSlop(dx)) {
-                    return true;
-                }
-                instantScrollWithFinger(dx);
-                break;
-            case MotionEvent.ACTION_UP:
-                // 手指抬起后, 本次事件序列就结束了, 就重置 mIsFirstEntryAfterIntercepting的值为true, 以不影响下一次的触摸事件.
-                mIsFirstEntryAfterInterceptingInThisEventSeries = true;
-
-                // 从手指按下到抬起的整个过程中, 在x方向上移动的位置坐标差.
-                float downToUpDx = currRawX - mDownRawX;
-                // 屏幕宽度的一半
-                int halfScreenWidth = mScreenWidthPixels >> 1;
-                // 如果手指离开时, 从总体来看是手指向左滑动(即: 下一个子View逐渐进入到屏幕中), 并且滑动的距离
-                // 大于屏幕宽度的一半时, 就继续平滑移动到下一个子View完整停留在屏幕内为止.
-                if (downToUpDx < 0 && Math.abs(downToUpDx) >= halfScreenWidth) {
-                    smoothScrollToNextChild();
-                }
-                // 如果手指离开时, 从总体来看是手指向右滑动(即: 上一个子View逐渐进入到屏幕中), 并且滑动的距离
-                // 大于屏幕宽度的一半时, 就继续平滑移动到上一个子View完整停留在屏幕内为止.
-                else if (downToUpDx > 0 && Math.abs(downToUpDx) >= halfScreenWidth) {
-                    smoothScrollToPreviousChild();
-                }
-                // 如果手指离开时, 从总体来看不论是向哪个方向滑动, 只要滑动的距离小于屏幕宽度的一半, 就会
-                // 向与刚才滑动相反的方向平滑移动回到原先的位置然后停止.
-                else {
-                    smoothScrollBack();
-                }
-                break;
+    public void addView(View child, int index, LayoutParams params) {
+        if (mAdapter == null && !mPopulating) {
+            if (index < 0 || index >= getChildCount()) {
+                mStaticPages.add(child);
+            } else {
+                mStaticPages.add(mStaticPages.indexOf(getChildAt(index)), child);
+            }
         }
-        mLastScrolledRawX = currRawX;
-        return true;
+        super.addView(child, index, params);
+    }
+
+    @Override
+    public void removeView(View view) {
+        // 已经按页面窗口移出容器的静态页面不是子View, 移除时不会回调 onChildViewRemoved(), 在这里直接删除.
+        if (mAdapter == null && view.getParent() != this && mStaticPages.contains(view)) {
+            onStaticPageRemoved(view);
+            requestLayout();
+        }
+        super.removeView(view);
+    }
+
+    @Override
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener) {
+        mOnHierarchyChangeListener = listener;
     }
 
     /**
-     * 平滑移动回到原先的位置 (即: 手指按下前, 该控件停留的位置)
+     * 一个静态页面被删除了 (不是按页面窗口移出容器), 不再算作页面. 页面窗口和页面的位置在下一次测量时重新计算.
      */
-    private void smoothScrollBack() {
-        float dx = Math.abs(getScrollX()) - mScreenWidthPixels * mChildIndexWhenDown;
-        dx = adjustDeltaXDistance(dx);
-        int durationTimeMillis = 200;
-        smoothScrollBy((int) (dx + 0.5f), 0, durationTimeMillis);
+    private void onStaticPageRemoved(View page) {
+        mStaticPages.remove(page);
+        if (mNonGoneStaticPages.remove(page)) {
+            mPageOffsetsDirty = true;
+        }
+        int attachedIndex = mAttachedPages.indexOfValue(page);
+        if (attachedIndex >= 0) {
+            mAttachedPages.removeAt(attachedIndex);
+        }
     }
 
     /**
-     * 平滑移动到上一个子View, 然后停止
+     * 把给定位置的页面添加到容器中. 空闲时已经准备好的页面直接使用, 否则先创建并绑定数据.
      */
-    private void smoothScrollToPreviousChild() {
-        // 说明当前的子View已经随手指向右移动了一大半的距离(该距离超过了整个屏幕宽度的一半)了, 那么只需要继续
-        // 向右移动剩余的一小半距离(即: 整个屏幕宽度减去已经移动过的那一大半距离后剩下的距离)即可.
-        float dx = Math.abs(getScrollX()) - mScreenWidthPixels * (mChildIndexWhenDown - 1);
-        dx = adjustDeltaXDistance(dx);
-        int durationTimeMillis = 200;
-        smoothScrollBy((int) (dx + 0.5f), 0, durationTimeMillis);
+    private void addPage(int position) {
+        int viewType = mAdapter.getPageViewType(position);
+        View page;
+        int preparedIndex = mPreparedPages.indexOfKey(position);
+        if (preparedIndex >= 0) {
+            // 空闲时已经准备好了, 直接添加.
+            page = mPreparedPages.valueAt(preparedIndex);
+            mPreparedPages.removeAt(preparedIndex);
+            mPreparedPageTypes.delete(position);
+        } else {
+            page = obtainPage(position, viewType);
+        }
+        mAttachedPages.put(position, page);
+        mAttachedPageTypes.put(position, viewType);
+        addView(page);
     }
 
     /**
-     * 平滑移动到下一个子View, 然后停止
+     * 把一个占位页面添加到给定的位置上.
      */
-    private void smoothScrollToNextChild() {
-        // 说明当前的子View已经随手指向左移动了一大半的距离(该距离超过了整个屏幕宽度的一半)了, 那么只需要继续
-        // 向左移动剩余的一小半距离(即: 整个屏幕宽度减去已经移动过的那一大半距离后剩下的距离)即可.
-        float dx = - (mScreenWidthPixels * (mChildIndexWhenDown + 1) - Math.abs(getScrollX()));
-        dx = adjustDeltaXDistance(dx);
-        int durationTimeMillis = 200;
-        smoothScrollBy((int) (dx + 0.5f), 0, durationTimeMillis);
+    private void addPlaceholderPage(int position) {
+        View page = mPlaceholderPages.isEmpty()
+                ? mAdapter.onCreatePlaceholderPage(this) : mPlaceholderPages.remove(mPlaceholderPages.size() - 1);
+        mAttachedPages.put(position, page);
+        mAttachedPageTypes.put(position, PLACEHOLDER_VIEW_TYPE);
+        addView(page);
     }
 
     /**
-     * 计算发生 ACTION_DOWN 事件时, 所触摸到的子View的 index(index从0开始). 该计算值结合手指抬起时一共滑动
-     * 的距离值, 可以计算出发生手指抬起后, 页面要进行平滑滑动的方向和滑动距离.
+     * 创建 (优先从回收池中取出同类型的页面, 其次使用子线程中已经创建好的页面, 都没有时才由适配器创建) 给定位置的
+     * 页面, 并绑定数据. 使用子线程中创建好的页面时不经过回收池, 不计入回收池的未命中次数.
      */
-    private void calcFingerTouchedChildIndexWhenActionDown() {
-        // 发生 ACTION_DOWN 事件时(即: 有手指按下时), 计算手指按下的点到该ViewGroup的左边框(该左边框可能在屏幕外)的距离
-        float fingerToMyLeftBorderDistanceWhenDown = Math.abs(getScrollX()) + Math.abs(mDownRawX);
-        mChildIndexWhenDown = (int)(fingerToMyLeftBorderDistanceWhenDown / mScreenWidthPixels);
-//        Toast.makeText(getContext(), "down: childIndex = " + mChildIndexWhenDown, Toast.LENGTH_LONG).show();
+    private View obtainPage(int position, int viewType) {
+        View page = null;
+        if (mRecycledPagePool.getRecycledPageCount(viewType) == 0) {
+            page = mAsyncPageFactory.getCreatedPage(viewType);
+        }
+        if (page == null) {
+            page = mRecycledPagePool.getRecycledPage(viewType);
+        }
+        if (page == null) {
+            page = mAdapter.onCreatePage(this, viewType);
+        }
+        mAdapter.onBindPage(page, position);
+        return page;
     }
 
     /**
-     * 判断给定的滑动坐标差所代表的滑动距离是否超过了 touchSlop (即: Android 系统认可这是一次滑动事件时所能
-     * 滑动的最小距离)
-     * @param deltaDistance 滑动坐标差, 可能为正数, 也可能为负数.
-     * @return 给定的滑动坐标差所代表的滑动距离是否超过了 touchSlop. true表示超过了, false表示未超过.
+     * 窗口内第 position 个页面还没有准备好, 也还看不见时, 如果适配器允许, 就请求在子线程中创建该页面.
+     * @return 是否要先用占位页面代替该页面, 等待子线程创建完成.
      */
-    private boolean isScrollExceedingTouchSlop(float deltaDistance) {
-        boolean isScrollExceedingTouchSlop = true;
-        // 在水平方向上滑动距离的绝对值
-        float deltaDistanceAbs = Math.abs(deltaDistance);
-        // 如果滑动距离小于 mTouchSlop, 则什么都不执行.
-        if (deltaDistanceAbs < mTouchSlop) {
-            // 直接告诉开发者本次滑动未超过touchSlop, 所以不符合滑动要求, 应该舍弃本次滑动,
-            // 什么设置都不做, 并且应该直接进入到下一次事件的响应准备中.
-            isScrollExceedingTouchSlop = false;
+    private boolean waitForAsyncPage(int position) {
+        if (mPreparedPages.get(position) != null || isPageVisible(position)) {
+            return false;
+        }
+        int viewType = mAdapter.getPageViewType(position);
+        // 回收池中或者已经创建好的页面只需要绑定数据, 直接使用.
+        if (mRecycledPagePool.getRecycledPageCount(viewType) > 0 || mAsyncPageFactory.hasCreatedPage(viewType)) {
+            return false;
+        }
+        if (mAsyncPageFactory.isPending(position, viewType)) {
+            return true;
         }
-        return isScrollExceedingTouchSlop;
+        if (!mAdapter.isAsyncPageCreationSupported(viewType)) {
+            return false;
+        }
+        mAsyncPageFactory.request(mAdapter, position, viewType);
+        return true;
     }
 
     /**
-     * 当手指还未离开屏幕时, 该控件会跟随手指的移动而移动(瞬时移动), 但不能超出左右两个边界(即: 最左边的子View的
-     * 左边界和最右边的子View的右边界)
-     * @param dx 在x方向上滑动的 deltaX, 注意: 可能为负数.
-     * @return 本次滑动是否符合Android系统的滑动要求(即: 滑动距离是否超过了touchSlop). 返回true表示符合该要求;
-     *         返回false表示不符合该要求, false 情况下应该直接舍弃本次滑动.
+     * @return 第 position 个页面是否有一部分在视口中
      */
-    private void instantScrollWithFinger(float dx) {
-        float dxBeforeAdjust = dx;
-        dx = adjustDeltaXDistance(dx);
-//        Toast.makeText(getContext(), "修正前: dx = " + dxBeforeAdjust + "修正后: dx = " + dx, Toast.LENGTH_SHORT).show();
-        scrollBy(-(int) (dx + 0.5f), 0);
+    private boolean isPageVisible(int position) {
+        PageOffsetIndex offsets = getPageOffsets();
+        int scrollX = getPageScrollX();
+        int pageLeft = offsets.getPageLeft(position);
+        return pageLeft < scrollX + mScreenWidthPixels && pageLeft + offsets.getPageWidth(position) > scrollX;
     }
 
     /**
-     * 修正要滑动的距离差, 使其数值要保证该ViewGroup的最左边的子View的左边框和最右边的子View的右边框都不能滑入屏幕内.
-     * @param dx 要修正的距离差
-     * @return 修正以后的距离差
+     * 等待子线程创建的页面滑入视口时还没有送回, 就不再等待, 立即在主线程中创建. fling 途中一闪而过的页面除外.
      */
-    private float adjustDeltaXDistance(float dx) {
-        float scrolledXDistanceAbs = Math.abs(dx);
+    private void createVisibleWaitingPages() {
+        for (int i = 0; i < mAttachedPages.size(); i++) {
+            int position = mAttachedPages.keyAt(i);
+            if (mAttachedPageTypes.get(position) == PLACEHOLDER_VIEW_TYPE && !isPassedOverPage(position)
+                    && isPageVisible(position)) {
+                populate();
+                return;
+            }
+        }
+    }
 
-        int currScrollX = getScrollX();
-        // 该ViewGroup在屏幕左边框以外的剩余宽度
-        int widthOutOfScreenLeftBorder = Math.abs(currScrollX);
-        // 如果是向右滑动并且滑动距离大于了该ViewGroup在屏幕左边框以外的剩余宽度, 则要保证最左边的子View
-        // 的左边界不能滑入屏幕内
-        if (dx > 0 && widthOutOfScreenLeftBorder >= 0 && scrolledXDistanceAbs > widthOutOfScreenLeftBorder) {
-            dx = widthOutOfScreenLeftBorder;
+    /**
+     * 从容器中移除给定的页面, 并将其放入回收池中. 占位页面放回占位页面的缓存中.
+     */
+    private void destroyPage(View page, int position) {
+        removeView(page);
+        int viewType = mAttachedPageTypes.get(position);
+        mAttachedPageTypes.delete(position);
+        if (viewType == PLACEHOLDER_VIEW_TYPE) {
+            mPlaceholderPages.add(page);
+            return;
         }
+        mAdapter.onPageDestroyed(page, position);
+        mRecycledPagePool.putRecycledPage(viewType, page);
+    }
+
+    private void destroyAllPages() {
+        for (int i = mAttachedPages.size() - 1; i >= 0; i--) {
+            destroyPage(mAttachedPages.valueAt(i), mAttachedPages.keyAt(i));
+        }
+        mAttachedPages.clear();
+    }
+
+    /**
+     * 适配器的数据发生变化时, 销毁所有页面并根据新的数据重新创建窗口内的页面.
+     */
+    private void dataSetChanged() {
+        destroyAllPages();
+        discardPreparedPages();
+        mPageOffsetsDirty = true;
+        int pageCount = mAdapter.getCount();
+        if (mCurrentItem >= pageCount) {
+            mCurrentItem = Math.max(0, pageCount - 1);
+        }
+        // 页面的宽度可能也变了, 让当前页面完整地停在视口中.
+        PageOffsetIndex offsets = getPageOffsets();
+        pageScrollTo(pageCount == 0 ? 0 : offsets.clampScrollX(offsets.getPageLeft(mCurrentItem)));
+        populate();
+        requestLayout();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (!mTranslationLayoutEnabled) {
+            onPageScrollChanged(l);
+        }
+    }
 
-        // 添加上边if的约束条件后, 就保证了 currScrollX 一直 >= 0, 也就是 getScrollX() 一直 >= 0
+    /**
+     * 滑动位置发生变化后回调.
+     * @param pageScrollX 新的滑动位置
+     */
+    private void onPageScrollChanged(int pageScrollX) {
+        if (mScreenWidthPixels <= 0) {
+            return;
+        }
+        // 滑动到了另一个页面的范围内 (超过了页面宽度的一半), 就更新当前页面并重新计算页面窗口.
+        int currentItem = getPageOffsets().getNearestPage(pageScrollX);
+        if (currentItem != mCurrentItem) {
+            mSwipeDirection = currentItem > mCurrentItem ? 1 : -1;
+            mCurrentItem = currentItem;
+            PageBitmapCache.getInstance(getContext()).setCurrentPage(this, mCurrentItem);
+            populate();
+        } else if (mAdapter != null) {
+            createVisibleWaitingPages();
+        }
+    }
 
-        // 该ViewGroup在屏幕右边框以外的剩余宽度
-        int widthOutOfScreenRightBorder = getWidth() - currScrollX - mScreenWidthPixels;
-        // 如果是向左滑动并且滑动距离大于了该ViewGroup在屏幕右边框以外的剩余宽度, 则要保证最右边的子View
-        // 的右边界不能滑入屏幕内
-        if (dx < 0 && widthOutOfScreenRightBorder >= 0 && scrolledXDistanceAbs > widthOutOfScreenRightBorder) {
-            dx = - widthOutOfScreenRightBorder;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        PageBitmapCache.getInstance(getContext()).setCurrentPage(this, mCurrentItem);
+        // 离开窗口时取消了子线程中的创建, 重新请求窗口内还在等待的页面.
+        if (mAdapter != null) {
+            populate();
         }
-        return dx;
+        mPagePreloader.schedule();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // 不在窗口中了, 不再需要逐帧推进动画, 直接停在当前位置.
+        catchScrollAnimation();
+        mPagePreloader.cancel();
+        // 不在窗口中了, 子线程中还没有开始的页面不再创建, 已经创建好的页面也不再暂存.
+        mAsyncPageFactory.cancelAll();
+        getNestedScrollingChildHelper().onDetachedFromWindow();
+        super.onDetachedFromWindow();
     }
 
     /**
-     * 平滑移动
+     * 获取给定页面的位置.
+     * @param page 该容器的直接子View
+     * @return 页面的位置 (从0开始), 如果 page 不是该容器中的页面则返回 -1.
+     */
+    public int getPagePosition(View page) {
+        int index = mAttachedPages.indexOfValue(page);
+        if (index >= 0) {
+            return mAttachedPages.keyAt(index);
+        }
+        if (mAdapter != null || page.getVisibility() == GONE) {
+            return -1;
+        }
+        // 已经被移出容器的静态页面
+        return mNonGoneStaticPages.indexOf(page);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            mDownX = event.getX();
+            mDownY = event.getY();
+            // 用户开始触摸了, 预加载要等页面再次停稳以后才能继续.
+            mPagePreloader.cancel();
+        }
+        addHistoricalMovements(event);
+        return mTouchTracker.onInterceptTouchEvent(event.getAction(), event.getRawX(), event.getRawY(),
+                event.getEventTime());
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (event.getAction() != MotionEvent.ACTION_DOWN) {
+            addHistoricalMovements(event);
+        }
+        return mTouchTracker.onTouchEvent(event.getAction(), event.getRawX(), event.getEventTime());
+    }
+
+    /**
+     * 将该事件中批量携带的历史采样点交给触摸状态机, 用于计算手指移动的速度, 拖动时页面也会跟随这些采样点移动.
+     * 高采样率的触摸屏在一帧中会产生多个采样点, 只使用事件本身的坐标会丢失中间的轨迹.
+     */
+    private void addHistoricalMovements(MotionEvent event) {
+        // 历史采样点只有相对于该控件的坐标, 加上与 rawX 之间的偏移量后换算成屏幕坐标.
+        float rawOffsetX = event.getRawX() - event.getX();
+        int historySize = event.getHistorySize();
+        for (int i = 0; i < historySize; i++) {
+            mTouchTracker.addHistoricalMovement(event.getHistoricalEventTime(i),
+                    event.getHistoricalX(i) + rawOffsetX);
+        }
+    }
+
+    private int getPageCount() {
+        return mAdapter != null ? mAdapter.getCount() : mNonGoneStaticPages.size();
+    }
+
+    /**
+     * 按下位置上的子View, 以及它到该控件之间的所有祖先中, 是否有能沿给定方向水平滚动的View (例如横向的列表,
+     * 放大以后的图片).
+     * @param direction 与 {@link View#canScrollHorizontally(int)} 的参数相同.
+     */
+    private boolean canTouchedDescendantScrollHorizontally(int direction) {
+        View child = findChildUnder(this, mDownX, mDownY);
+        float x = mDownX;
+        float y = mDownY;
+        ViewGroup parent = this;
+        while (child != null) {
+            if (child.canScrollHorizontally(direction)) {
+                return true;
+            }
+            // 换算成子View自己的坐标, 继续向下查找
+            x += parent.getScrollX() - child.getLeft() - child.getTranslationX();
+            y += parent.getScrollY() - child.getTop() - child.getTranslationY();
+            if (!(child instanceof ViewGroup)) {
+                break;
+            }
+            parent = (ViewGroup) child;
+            child = findChildUnder(parent, x, y);
+        }
+        return false;
+    }
+
+    /**
+     * 找到给定坐标上最上层的可见子View. 不考虑缩放和旋转.
+     * @param x 相对于 parent 的x坐标
+     * @param y 相对于 parent 的y坐标
+     */
+    private static View findChildUnder(ViewGroup parent, float x, float y) {
+        float scrolledX = x + parent.getScrollX();
+        float scrolledY = y + parent.getScrollY();
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            View child = parent.getChildAt(i);
+            if (child.getVisibility() != VISIBLE) {
+                continue;
+            }
+            float left = child.getLeft() + child.getTranslationX();
+            float top = child.getTop() + child.getTranslationY();
+            if (scrolledX >= left && scrolledX < left + child.getWidth()
+                    && scrolledY >= top && scrolledY < top + child.getHeight()) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 平滑移动. 如果上一次的平滑移动还没有结束, 则保持当前的位置和速度, 改为向新的目标移动.
      * @param dx 在x方向上平滑移动的距离
-     * @param dy 在y方向上平滑移动的距离
-     * @param durationTimeMillis 完成这次平滑移动所需要的时间
+     * @param velocityX 开始移动时在x方向上的 (手指的) 速度, 单位: px/s.
      */
-    private void smoothScrollBy(int dx, int dy,  int durationTimeMillis){
-        int startX = getScrollX();
-        int startY = getScrollY();
+    private void smoothScrollBy(int dx, float velocityX) {
+        float targetScrollX = getPageScrollX() - dx;
+        long now = PageAnimationDriver.now();
         // 开始进行平滑移动
-        mScroller.startScroll(startX, startY, -dx, -dy, durationTimeMillis);
-        // 必须手动要求重绘, 系统才会开始重绘
-        safeInvalidate();
+        if (mScrollEngine.isFinished()) {
+            mScrollEngine.start(getPageScrollX(), -velocityX, targetScrollX, now);
+        } else {
+            mScrollEngine.retarget(targetScrollX, now);
+        }
+        // 从下一个垂直同步信号开始逐帧推进
+        mAnimationDriver.start();
+        startFlingPrefetch();
     }
 
-    @Override
-    public void computeScroll() {
-        if (mScroller.computeScrollOffset()) {
-            scrollTo(mScroller.getCurrX(), mScroller.getCurrY());
-            safeInvalidate();
+    /**
+     * 如果页面正在平滑移动, 就让它停在当前位置 (而不是像 Scroller.abortAnimation() 那样瞬间跳到终点).
+     * @return 调用时页面是否正在平滑移动
+     */
+    private boolean catchScrollAnimation() {
+        if (mScrollEngine.isFinished()) {
+            return false;
+        }
+        stopScrollAnimation();
+        pageScrollTo(getPageOffsets().clampScrollX(Math.round(mScrollEngine.getPosition())));
+        return true;
+    }
+
+    private void stopScrollAnimation() {
+        mAnimationDriver.cancel();
+        mScrollEngine.stop(PageAnimationDriver.now());
+        endFlingPrefetch();
+    }
+
+    /**
+     * 拖动页面. 先让外层的滚动容器消费一部分, 剩下的由页面消费, 到达边界以后消费不了的部分再交给外层的滚动容器.
+     * @param dx 滑动位置的增量
+     */
+    private void dragPagesBy(int dx) {
+        if (dispatchNestedPreScroll(dx, 0, mNestedScrollConsumed, mNestedScrollOffset)) {
+            dx -= mNestedScrollConsumed[0];
+        }
+        if (dx == 0) {
+            return;
         }
+        int consumed = scrollPagesClampedBy(dx);
+        dispatchNestedScroll(consumed, 0, dx - consumed, 0, mNestedScrollOffset);
+    }
+
+    /**
+     * 立即移动页面, 但不能超出第一页和最后一页.
+     * @return 实际移动的距离
+     */
+    private int scrollPagesClampedBy(int dx) {
+        int scrollX = getPageScrollX();
+        int newScrollX = getPageOffsets().clampScrollX(scrollX + dx);
+        pageScrollTo(newScrollX);
+        return newScrollX - scrollX;
+    }
+
+    /**
+     * @return 滑动位置到最近的页面的停留位置的距离, 为0表示某一页正好停在视口中. 最后几个页面的停留位置是
+     *         靠右对齐的位置.
+     */
+    private int getPageAlignmentOffset() {
+        int scrollX = getPageScrollX();
+        PageOffsetIndex offsets = getPageOffsets();
+        return scrollX - offsets.clampScrollX(offsets.getPageLeft(offsets.getNearestPage(scrollX)));
     }
 
     /**
-     * 执行重绘, 在主线程还是子线程中均可调用该重绘方法.
+     * 作为父View时, 嵌套滚动结束后决定停在哪一页.
+     * @param scrollVelocityX 滑动位置的变化速度, 与手指的速度方向相反.
+     * @return 目标页面的滑动位置
      */
-    private void safeInvalidate() {
-        if (isMainThread()) {
-            invalidate();
+    private int settleNestedScroll(float scrollVelocityX) {
+        mNestedScrollSettled = true;
+        float dragDx = mNestedScrollStartScrollX - getPageScrollX();
+        return mTouchTracker.settleNestedScroll(mNestedScrollStartPage, dragDx, -scrollVelocityX);
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return (nestedScrollAxes & ViewCompat.SCROLL_AXIS_HORIZONTAL) != 0 && !mTouchTracker.isBeingDragged();
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        catchScrollAnimation();
+        mNestedScrollStartScrollX = getPageScrollX();
+        mNestedScrollStartPage = getPageOffsets().getNearestPage(mNestedScrollStartScrollX);
+        mNestedScrollSettled = false;
+        // 继续向外层传递
+        startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL);
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        // 页面没有对齐时, 先移动页面, 直到某一页完整地停在视口中, 子View才继续滚动.
+        int offset = getPageAlignmentOffset();
+        if (offset == 0 || dx == 0) {
+            return;
+        }
+        int pagerDx;
+        if ((dx > 0) == (offset > 0)) {
+            pagerDx = dx;
         } else {
-            postInvalidate();
+            pagerDx = dx > 0 ? Math.min(dx, -offset) : Math.max(dx, -offset);
+        }
+        consumed[0] = scrollPagesClampedBy(pagerDx);
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        // 子View已经滚动到边界, 剩下的距离由页面消费.
+        int consumed = dxUnconsumed != 0 ? scrollPagesClampedBy(dxUnconsumed) : 0;
+        dispatchNestedScroll(consumed, 0, dxUnconsumed - consumed, 0, mNestedScrollOffset);
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (dispatchNestedPreFling(velocityX, velocityY)) {
+            return true;
+        }
+        // 页面没有对齐时, 由页面消费这次 fling.
+        if (getPageAlignmentOffset() != 0) {
+            settleNestedScroll(velocityX);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        if (!consumed && velocityX != 0) {
+            // 子View已经滚动到边界, 由页面继续 fling.
+            int scrollX = getPageScrollX();
+            boolean pagerConsumed = settleNestedScroll(velocityX) != scrollX;
+            dispatchNestedFling(velocityX, velocityY, pagerConsumed);
+            return pagerConsumed;
+        }
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        if (!mNestedScrollSettled && getPageAlignmentOffset() != 0) {
+            settleNestedScroll(0);
+        }
+        stopNestedScroll();
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    // NestedScrollingChild
+
+    private NestedScrollingChildHelper getNestedScrollingChildHelper() {
+        if (mNestedScrollingChildHelper == null) {
+            mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
         }
+        return mNestedScrollingChildHelper;
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        getNestedScrollingChildHelper().setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return getNestedScrollingChildHelper().isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return getNestedScrollingChildHelper().startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        getNestedScrollingChildHelper().stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return getNestedScrollingChildHelper().hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                                        int[] offsetInWindow) {
+        return getNestedScrollingChildHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed,
+                dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return getNestedScrollingChildHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return getNestedScrollingChildHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return getNestedScrollingChildHelper().dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    /**
+     * 设置页面平滑移动所使用的动画引擎. 默认使用 {@link SpringScrollEngine}.
+     * @param engine 动画引擎, 不能为 null.
+     */
+    public void setScrollEngine(ScrollEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("ScrollEngine must not be null");
+        }
+        stopScrollAnimation();
+        mScrollEngine = engine;
+    }
+
+    public ScrollEngine getScrollEngine() {
+        return mScrollEngine;
     }
 
     /**
-     * 判断执行这句代码的语句所在的线程是不是主线程
-     * @return true表示执行这句代码的语句所在的线程是主线程, false表示执行这句代码的语句所在的线程不是主线程.
+     * 页面的 LayoutParams. 除了 margin 以外, 还有页面的宽度倍数, 并记录了上次测量该页面时的测量规格, 用于跳过
+     * 不必要的测量.
      */
-    private boolean isMainThread() {
-        return Looper.getMainLooper() == Looper.myLooper();
+    public static class PageLayoutParams extends MarginLayoutParams {
+
+        /**
+         * 静态页面的宽度与容器宽度的比值, 默认为1. 对应 XML 属性 layout_pageWidthFactor. 使用适配器时由
+         * {@link PageAdapter#getPageWidth(int)} 决定, 该值不起作用.
+         */
+        public float pageWidthFactor = 1f;
+
+        // 是否已经测量过, 以及上次测量时容器的测量规格.
+        boolean mMeasured;
+        int mWidthMeasureSpec;
+        int mHeightMeasureSpec;
+
+        public PageLayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+            TypedArray a = c.obtainStyledAttributes(attrs, R.styleable.MyViewPager5_Layout);
+            pageWidthFactor = a.getFloat(R.styleable.MyViewPager5_Layout_layout_pageWidthFactor, 1f);
+            a.recycle();
+        }
+
+        public PageLayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public PageLayoutParams(MarginLayoutParams source) {
+            super(source);
+            if (source instanceof PageLayoutParams) {
+                pageWidthFactor = ((PageLayoutParams) source).pageWidthFactor;
+            }
+        }
+
+        public PageLayoutParams(LayoutParams source) {
+            super(source);
+        }
+    }
+
+    /**
+     * 触摸状态机通过该类读取页面的尺寸和滑动位置, 并移动页面.
+     */
+    private class TouchHost implements PagerTouchTracker.Host {
+        @Override
+        public int getPageScrollX() {
+            return MyViewPager5.this.getPageScrollX();
+        }
+
+        @Override
+        public PageOffsetIndex getPageOffsets() {
+            return MyViewPager5.this.getPageOffsets();
+        }
+
+        @Override
+        public void dragBy(int dx) {
+            dragPagesBy(dx);
+        }
+
+        @Override
+        public void smoothScrollBy(int dx, float velocityX) {
+            MyViewPager5.this.smoothScrollBy(dx, velocityX);
+        }
+
+        @Override
+        public boolean catchScrollAnimation() {
+            return MyViewPager5.this.catchScrollAnimation();
+        }
+
+        @Override
+        public float projectFlingPosition(float scrollX, float scrollVelocity) {
+            return mScrollEngine.projectFlingPosition(scrollX, scrollVelocity);
+        }
+
+        @Override
+        public boolean canTouchedChildScrollHorizontally(int direction) {
+            return canTouchedDescendantScrollHorizontally(direction);
+        }
+
+        @Override
+        public void onDragStarted() {
+            // 拖动页面时, 外层的容器 (例如竖直方向的 ScrollView) 不能再把事件序列抢走.
+            ViewParent parent = getParent();
+            if (parent != null) {
+                parent.requestDisallowInterceptTouchEvent(true);
+            }
+            startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL);
+        }
+
+        @Override
+        public void onDragEnded() {
+            stopNestedScroll();
+        }
+
+        @Override
+        public boolean dispatchPreFling(float scrollVelocity) {
+            return dispatchNestedPreFling(scrollVelocity, 0);
+        }
+
+        @Override
+        public void dispatchFling(float scrollVelocity, boolean consumed) {
+            dispatchNestedFling(scrollVelocity, 0, consumed);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.clevergump.my_viewpager_demo.widget;
+
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * {@link MyViewPager5} 的页面适配器. 设置了适配器以后, MyViewPager5 不再要求所有页面都以 XML 子View的形式
+ * 提前声明, 而是只让当前页面及其左右若干个相邻页面 (数量由 {@link MyViewPager5#setOffscreenPageLimit(int)}
+ * 指定) 处于 attach 状态, 随着滑动位置的变化再去创建或销毁页面. 这样即使有成百上千个页面, 测量和布局的代价
+ * 也只与窗口内的页面数有关, 而与页面总数无关.
+ *
+ * 页面的创建和数据绑定是分开的两步: {@link #onCreatePage(ViewGroup, int)} 只负责根据页面类型创建 View,
+ * {@link #onBindPage(View, int)} 再把某个位置的数据绑定到该 View 上.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public abstract class PageAdapter {
+
+    private final DataSetObservable mDataSetObservable = new DataSetObservable();
+
+    /**
+     * @return 页面的总数
+     */
+    public abstract int getCount();
+
+    /**
+     * 获取给定位置的页面类型. 只有一种页面类型时无需重写该方法.
+     * @param position 页面的位置 (从0开始)
+     * @return 页面类型, 必须 >= 0.
+     */
+    public int getPageViewType(int position) {
+        return 0;
+    }
+
+    /**
+     * 获取给定位置的页面宽度与 {@link MyViewPager5} 宽度的比值. 例如返回 0.8f 时相邻页面的边缘会露在视口中.
+     * 数据没有变化但某一页的宽度变了时, 调用 {@link MyViewPager5#notifyPageWidthChanged(int)}.
+     * @param position 页面的位置 (从0开始)
+     * @return 宽度的比值, 默认为1.
+     */
+    public float getPageWidth(int position) {
+        return 1f;
+    }
+
+    /**
+     * 创建一个给定类型的页面. 在该方法中不要把创建出的 View 添加到 parent 中, parent 只用于生成合适的 LayoutParams.
+     * @param parent 页面将要被添加到的容器, 即 {@link MyViewPager5}
+     * @param viewType 页面类型, 即 {@link #getPageViewType(int)} 的返回值.
+     * @return 新创建的页面
+     */
+    public abstract View onCreatePage(ViewGroup parent, int viewType);
+
+    /**
+     * 给定类型的页面是否可以在子线程中创建. 返回 true 时, 窗口内还看不见的页面会在子线程中调用
+     * {@link #onCreatePage(ViewGroup, int)}, 创建好之前先显示占位页面. 此时 onCreatePage() 只能 inflate 或者
+     * new 出页面, 不能访问 parent 以外的 View 树, 也不能使用 Handler 等依赖主线程 Looper 的对象. 数据绑定
+     * ({@link #onBindPage(View, int)}) 仍然在主线程中进行.
+     * @param viewType 页面类型
+     * @return 默认为 false, 即总是在主线程中创建.
+     */
+    public boolean isAsyncPageCreationSupported(int viewType) {
+        return false;
+    }
+
+    /**
+     * 将给定位置的数据绑定到页面上.
+     * @param page 由 {@link #onCreatePage(ViewGroup, int)} 创建出的页面
+     * @param position 页面的位置 (从0开始)
+     */
+    public abstract void onBindPage(View page, int position);
+
+    /**
+     * 创建一个占位页面. 快速 fling 时只是一闪而过的页面不会创建和绑定真正的页面, 而是显示占位页面, 占位页面
+     * 不绑定任何数据, 可以被任意位置复用. 默认是一个空白的 View.
+     * @param parent 页面将要被添加到的容器, 即 {@link MyViewPager5}
+     * @return 新创建的占位页面
+     */
+    public View onCreatePlaceholderPage(ViewGroup parent) {
+        return new View(parent.getContext());
+    }
+
+    /**
+     * 页面滑出窗口, 即将从容器中移除时回调. 可以在这里释放该页面持有的资源.
+     * @param page 即将被移除的页面
+     * @param position 该页面的位置 (从0开始)
+     */
+    public void onPageDestroyed(View page, int position) {
+    }
+
+    /**
+     * 通知容器数据已经发生了变化.
+     */
+    public void notifyDataSetChanged() {
+        mDataSetObservable.notifyChanged();
+    }
+
+    public void registerDataSetObserver(DataSetObserver observer) {
+        mDataSetObservable.registerObserver(observer);
+    }
+
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        mDataSetObservable.unregisterObserver(observer);
+    }
+}
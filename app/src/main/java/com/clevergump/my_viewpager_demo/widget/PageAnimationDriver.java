@@ -0,0 +1,132 @@
+package com.clevergump.my_viewpager_demo.widget;
+
+import android.animation.ValueAnimator;
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * 页面动画的驱动器. 每个垂直同步信号 (vsync) 回调一次 {@link Callback#onAnimationFrame(long)}, 并传入这一帧的
+ * 时间戳, 由回调根据时间戳计算出新的滑动位置.
+ *
+ * 与在 computeScroll() 中 "滑动 -> invalidate() -> 重绘 -> 再次 computeScroll()" 的方式不同, 动画的推进不再依赖于
+ * 重绘, 每一帧只会推进一次. 回调中修改滑动位置时, View 自己会通过 postInvalidateOnAnimation() 在下一帧请求
+ * 一次重绘, 所以每一帧最多只会请求一次 traversal. 由于使用的是这一帧的时间戳而不是回调的次数, 掉帧以后位置
+ * 依然是正确的.
+ *
+ * API 16 及以上使用 {@link Choreographer}, 以下的版本退化为按帧间隔 post 到主线程.
+ * 只能在主线程中使用.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+class PageAnimationDriver {
+
+    /**
+     * 动画每一帧的回调.
+     */
+    interface Callback {
+        /**
+         * @param frameTimeNanos 这一帧的时间戳, 与 {@link #now()} 的时间基准相同.
+         * @return 是否还需要下一帧
+         */
+        boolean onAnimationFrame(long frameTimeNanos);
+    }
+
+    private final View mView;
+    private final Callback mCallback;
+    private final FrameSource mFrameSource;
+
+    // 是否已经预约了下一帧, 保证每一帧只回调一次.
+    private boolean mFrameScheduled;
+
+    PageAnimationDriver(View view, Callback callback) {
+        mView = view;
+        mCallback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameSource = new ChoreographerFrameSource();
+        } else {
+            mFrameSource = new PostingFrameSource();
+        }
+    }
+
+    /**
+     * @return 当前时间, 单位: 纳秒. 与 Choreographer 的帧时间戳使用相同的时间基准.
+     */
+    static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 开始 (或继续) 驱动动画. 已经预约了下一帧时什么都不做.
+     */
+    void start() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            mFrameSource.postFrame();
+        }
+    }
+
+    void cancel() {
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            mFrameSource.removeFrame();
+        }
+    }
+
+    boolean isRunning() {
+        return mFrameScheduled;
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (mCallback.onAnimationFrame(frameTimeNanos)) {
+            start();
+        }
+    }
+
+    private interface FrameSource {
+        void postFrame();
+
+        void removeFrame();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class ChoreographerFrameSource implements FrameSource, Choreographer.FrameCallback {
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        @Override
+        public void postFrame() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void removeFrame() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            PageAnimationDriver.this.doFrame(frameTimeNanos);
+        }
+    }
+
+    private class PostingFrameSource implements FrameSource, Runnable {
+        @Override
+        public void postFrame() {
+            mView.postDelayed(this, ValueAnimator.getFrameDelay());
+        }
+
+        @Override
+        public void removeFrame() {
+            mView.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            doFrame(now());
+        }
+    }
+}
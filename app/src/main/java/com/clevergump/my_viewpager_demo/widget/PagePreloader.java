@@ -0,0 +1,72 @@
+package com.clevergump.my_viewpager_demo.widget;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+/**
+ * 页面的空闲预加载器. 页面停稳以后, 利用主线程消息队列的空闲时间 ({@link MessageQueue.IdleHandler}) 提前准备
+ * 接下来最可能用到的页面 (创建, 绑定数据, 测量和布局, 从而触发图片的解码).
+ *
+ * 每次空闲只准备一个页面, 准备之前先检查页面是否正在被拖动或者正在播放动画, 是的话立即退出, 等页面再次停稳
+ * 以后重新调度. 因此预加载不会占用正在进行中的动画帧的时间.
+ *
+ * 只能在主线程中使用.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+class PagePreloader implements MessageQueue.IdleHandler {
+
+    /**
+     * 预加载器通过该接口询问页面的状态并准备页面.
+     */
+    interface Callback {
+        /**
+         * @return 页面是否正在被拖动或者正在播放动画
+         */
+        boolean isPagerBusy();
+
+        /**
+         * 准备一个接下来最可能用到的, 还没有准备好的页面.
+         * @return 是否准备了一个页面. 返回 false 表示已经没有需要准备的页面了.
+         */
+        boolean prepareNextPage();
+    }
+
+    private final Callback mCallback;
+
+    // 是否已经添加到了消息队列中
+    private boolean mScheduled;
+
+    PagePreloader(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * 在下一次空闲时开始预加载. 已经调度过时什么都不做.
+     */
+    void schedule() {
+        if (!mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    void cancel() {
+        if (mScheduled) {
+            mScheduled = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        // 用户开始触摸或者动画开始以后就让出主线程, 返回 false 会把自己从消息队列中移除.
+        if (mCallback.isPagerBusy() || !mCallback.prepareNextPage()) {
+            mScheduled = false;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+package com.clevergump.my_viewpager_demo.widget;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * 页面回收池. 从 {@link MyViewPager5} 中移除的页面会按页面类型放入该池中, 下次需要同一类型的页面时直接
+ * 取出来重新绑定数据, 而不必重新 inflate 布局.
+ *
+ * 每种页面类型都有各自的容量上限, 超过上限的页面将直接被丢弃. 池中还记录了每种类型的命中/未命中次数,
+ * 可以根据线上统计到的数值来调整各类型的容量上限. 同一个回收池可以被多个 MyViewPager5 共用.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class RecycledPagePool {
+
+    // 每种页面类型默认最多缓存的页面数
+    private static final int DEFAULT_MAX_RECYCLED_PAGES = 3;
+
+    // 缓存的页面, key 为页面类型.
+    private final SparseArray<ArrayList<View>> mScrapPages = new SparseArray<ArrayList<View>>();
+
+    // 每种页面类型的容量上限, key 为页面类型. 没有单独设置过的类型使用 DEFAULT_MAX_RECYCLED_PAGES.
+    private final SparseIntArray mMaxRecycledPages = new SparseIntArray();
+
+    // 每种页面类型的命中次数和未命中次数, key 为页面类型.
+    private final SparseIntArray mHitCounts = new SparseIntArray();
+    private final SparseIntArray mMissCounts = new SparseIntArray();
+
+    /**
+     * 设置某种页面类型最多缓存的页面数. 如果当前缓存的页面数已经超过了新的上限, 多出的页面将被丢弃.
+     * @param viewType 页面类型
+     * @param max 最多缓存的页面数, 为0表示该类型的页面不缓存.
+     */
+    public void setMaxRecycledPages(int viewType, int max) {
+        mMaxRecycledPages.put(viewType, max);
+        ArrayList<View> scrap = mScrapPages.get(viewType);
+        if (scrap != null) {
+            while (scrap.size() > max) {
+                scrap.remove(scrap.size() - 1);
+            }
+        }
+    }
+
+    public int getMaxRecycledPages(int viewType) {
+        return mMaxRecycledPages.get(viewType, DEFAULT_MAX_RECYCLED_PAGES);
+    }
+
+    /**
+     * 取出一个给定类型的缓存页面, 并记录一次命中或未命中.
+     * @param viewType 页面类型
+     * @return 缓存的页面, 没有该类型的缓存页面时返回 null.
+     */
+    public View getRecycledPage(int viewType) {
+        ArrayList<View> scrap = mScrapPages.get(viewType);
+        if (scrap == null || scrap.isEmpty()) {
+            mMissCounts.put(viewType, mMissCounts.get(viewType) + 1);
+            return null;
+        }
+        mHitCounts.put(viewType, mHitCounts.get(viewType) + 1);
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    /**
+     * 将一个不再使用的页面放入池中.
+     * @param viewType 页面类型
+     * @param page 不再使用的页面, 必须已经从容器中移除.
+     * @return true 表示放入成功; false 表示该类型的缓存页面数已达上限, 该页面被丢弃.
+     */
+    public boolean putRecycledPage(int viewType, View page) {
+        ArrayList<View> scrap = mScrapPages.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayList<View>();
+            mScrapPages.put(viewType, scrap);
+        }
+        if (scrap.size() >= getMaxRecycledPages(viewType)) {
+            return false;
+        }
+        scrap.add(page);
+        return true;
+    }
+
+    /**
+     * @return 某种页面类型当前缓存的页面数
+     */
+    public int getRecycledPageCount(int viewType) {
+        ArrayList<View> scrap = mScrapPages.get(viewType);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    public int getHitCount(int viewType) {
+        return mHitCounts.get(viewType);
+    }
+
+    public int getMissCount(int viewType) {
+        return mMissCounts.get(viewType);
+    }
+
+    /**
+     * @return 所有页面类型的命中次数之和
+     */
+    public int getHitCount() {
+        return sum(mHitCounts);
+    }
+
+    /**
+     * @return 所有页面类型的未命中次数之和
+     */
+    public int getMissCount() {
+        return sum(mMissCounts);
+    }
+
+    /**
+     * 将命中/未命中次数清零.
+     */
+    public void resetStats() {
+        mHitCounts.clear();
+        mMissCounts.clear();
+    }
+
+    /**
+     * 丢弃所有缓存的页面.
+     */
+    public void clear() {
+        mScrapPages.clear();
+    }
+
+    private static int sum(SparseIntArray counts) {
+        int sum = 0;
+        for (int i = 0; i < counts.size(); i++) {
+            sum += counts.valueAt(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,97 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 一次布局的耗时与页面总数的关系. 每次布局都有一个页面请求了重新布局:
+ * fullLayout 摆放所有页面 (所有页面都作为子View时的做法), incrementalLayout 通过 {@link IncrementalPageLayout}
+ * 只摆放窗口内的脏页面. 5 个页面和 5000 个页面时, incrementalLayout 的耗时应该相当. 与 MyViewPager5.onLayout()
+ * 一样, 页面的左边界和宽度从 {@link PageOffsetIndex} 中查询.
+ *
+ * 运行: ./gradlew :pager-core:jmh
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+@State(Scope.Thread)
+public class LayoutBenchmark {
+
+    private static final int PAGE_WIDTH = 1080;
+    private static final int OFFSCREEN_PAGE_LIMIT = 1;
+
+    @Param({"5", "5000"})
+    public int pageCount;
+
+    private BenchmarkPage[] mPages;
+    private PageOffsetIndex mOffsets;
+    private BenchmarkHost mHost;
+    private IncrementalPageLayout<BenchmarkPage> mLayout;
+    private int mCurrentItem;
+
+    @Setup
+    public void setUp() {
+        mPages = new BenchmarkPage[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            mPages[i] = new BenchmarkPage();
+        }
+        mOffsets = new PageOffsetIndex();
+        mOffsets.rebuild(pageCount, PAGE_WIDTH);
+        mOffsets.setViewportWidth(PAGE_WIDTH);
+        mHost = new BenchmarkHost();
+        mLayout = new IncrementalPageLayout<BenchmarkPage>(mHost);
+        mCurrentItem = pageCount / 2;
+        incrementalLayout();
+    }
+
+    @Benchmark
+    public int fullLayout() {
+        mPages[mCurrentItem].mLayoutRequested = true;
+        for (int position = 0; position < pageCount; position++) {
+            mHost.layoutPage(mPages[position], position, mOffsets.getPageLeft(position),
+                    mOffsets.getPageWidth(position));
+        }
+        return mHost.mLayoutCount;
+    }
+
+    @Benchmark
+    public int incrementalLayout() {
+        mPages[mCurrentItem].mLayoutRequested = true;
+        int first = PagerMath.getFirstWindowPage(mCurrentItem, OFFSCREEN_PAGE_LIMIT);
+        int last = PagerMath.getLastWindowPage(mCurrentItem, OFFSCREEN_PAGE_LIMIT, pageCount);
+        mLayout.beginPass();
+        for (int position = first; position <= last; position++) {
+            mLayout.layoutPage(mPages[position], position, mOffsets.getPageLeft(position),
+                    mOffsets.getPageWidth(position));
+        }
+        mLayout.endPass();
+        return mHost.mLayoutCount;
+    }
+
+    private static class BenchmarkPage {
+        boolean mLayoutRequested;
+        int mLeft;
+        int mRight;
+    }
+
+    private static class BenchmarkHost implements IncrementalPageLayout.Host<BenchmarkPage> {
+        int mLayoutCount;
+
+        @Override
+        public boolean isLayoutRequested(BenchmarkPage page) {
+            return page.mLayoutRequested;
+        }
+
+        @Override
+        public void layoutPage(BenchmarkPage page, int position, int pageLeft, int pageWidth) {
+            page.mLeft = pageLeft;
+            page.mRight = pageLeft + pageWidth;
+            page.mLayoutRequested = false;
+            mLayoutCount++;
+        }
+    }
+}
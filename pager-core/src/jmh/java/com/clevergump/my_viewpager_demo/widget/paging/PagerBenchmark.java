@@ -0,0 +1,212 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import com.clevergump.my_viewpager_demo.widget.scroll.SpringScrollEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 分页控件热路径的基准测试: 每个触摸事件, 每次布局, 每一帧动画的耗时 (ns/op) 和内存分配 (gc.alloc.rate.norm,
+ * 由 build.gradle 中配置的 gc profiler 统计).
+ *
+ * 运行: ./gradlew :pager-core:jmh
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+@State(Scope.Thread)
+public class PagerBenchmark {
+
+    private static final int PAGE_WIDTH = 1080;
+    private static final int OFFSCREEN_PAGE_LIMIT = 1;
+
+    // 一次手势: 1个 ACTION_DOWN, GESTURE_MOVES 个 ACTION_MOVE, 1个 ACTION_UP.
+    private static final int GESTURE_MOVES = 62;
+    private static final int GESTURE_EVENTS = GESTURE_MOVES + 2;
+
+    private static final int FRAME_NANOS = 16666667;
+
+    @Param({"10", "1000", "100000"})
+    public int pageCount;
+
+    private BenchmarkHost mHost;
+    private PagerTouchTracker mTracker;
+    private SpringScrollEngine mEngine;
+    private long mFrameTime;
+    private int mCurrentItem;
+    private int mProbeOffset;
+    private int mResizeCount;
+
+    // 每个页面的左右 margin, 模拟布局时读取 LayoutParams.
+    private int[] mMargins;
+
+    @Setup
+    public void setUp() {
+        mHost = new BenchmarkHost(pageCount);
+        mTracker = new PagerTouchTracker(mHost, 16, 100, 8000, 50);
+        mEngine = new SpringScrollEngine(SpringScrollEngine.DEFAULT_STIFFNESS, 7500f);
+        mMargins = new int[pageCount];
+        mCurrentItem = pageCount / 2;
+        mHost.mScrollX = mHost.getPageOffsets().getPageLeft(mCurrentItem);
+    }
+
+    /**
+     * 重放一次从中间页面向左拖动半页的手势, 结果按每个事件平均.
+     */
+    @Benchmark
+    @OperationsPerInvocation(GESTURE_EVENTS)
+    public int touchEvent() {
+        int startScrollX = mHost.getPageOffsets().getPageLeft(mCurrentItem);
+        mHost.mScrollX = startScrollX;
+        long time = 0;
+        float x = 800;
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, x, 500, time);
+        boolean intercepted = false;
+        for (int i = 0; i < GESTURE_MOVES; i++) {
+            x -= 9;
+            time += 8;
+            if (!intercepted) {
+                intercepted = mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, x, 500, time);
+            } else {
+                mTracker.onTouchEvent(PagerTouchTracker.ACTION_MOVE, x, time);
+            }
+        }
+        mTracker.onTouchEvent(PagerTouchTracker.ACTION_UP, x, time);
+        return mHost.mSmoothTarget;
+    }
+
+    /**
+     * 静态声明所有页面时的一次布局: 所有页面都要摆放一遍.
+     */
+    @Benchmark
+    public void layoutAllPages(Blackhole blackhole) {
+        for (int position = 0; position < pageCount; position++) {
+            layoutPage(position, blackhole);
+        }
+    }
+
+    /**
+     * 使用适配器时的一次布局: 只摆放页面窗口内的页面.
+     */
+    @Benchmark
+    public void layoutWindow(Blackhole blackhole) {
+        int first = PagerMath.getFirstWindowPage(mCurrentItem, OFFSCREEN_PAGE_LIMIT);
+        int last = PagerMath.getLastWindowPage(mCurrentItem, OFFSCREEN_PAGE_LIMIT, pageCount);
+        for (int position = first; position <= last; position++) {
+            layoutPage(position, blackhole);
+        }
+    }
+
+    private void layoutPage(int position, Blackhole blackhole) {
+        // 与 MyViewPager5.onLayout() 一样, 页面的左边界和宽度从索引中查询.
+        PageOffsetIndex offsets = mHost.getPageOffsets();
+        int pageLeft = offsets.getPageLeft(position);
+        blackhole.consume(pageLeft + mMargins[position]);
+        blackhole.consume(pageLeft + offsets.getPageWidth(position) - mMargins[position]);
+    }
+
+    /**
+     * 根据长条中的偏移量查找页面, 以及修改一个页面的宽度. 两者都是 O(log n) 的.
+     */
+    @Benchmark
+    public int pageAtOffset() {
+        PageOffsetIndex offsets = mHost.getPageOffsets();
+        mProbeOffset = (mProbeOffset + 7919) % offsets.getTotalWidth();
+        return offsets.getPageAt(mProbeOffset);
+    }
+
+    @Benchmark
+    public int resizePage() {
+        PageOffsetIndex offsets = mHost.getPageOffsets();
+        mResizeCount++;
+        offsets.setPageWidth(mCurrentItem, (mResizeCount & 1) == 0 ? PAGE_WIDTH : PAGE_WIDTH * 4 / 5);
+        return offsets.getPageLeft(pageCount - 1);
+    }
+
+    /**
+     * 动画的一帧: 推进弹簧, 更新当前页面和页面窗口. 动画结束后从头开始.
+     */
+    @Benchmark
+    public void animationFrame(Blackhole blackhole) {
+        PageOffsetIndex offsets = mHost.getPageOffsets();
+        if (!mEngine.computeOffset(mFrameTime)) {
+            mFrameTime = 0;
+            float target = offsets.getPageLeft(mCurrentItem + 1);
+            mEngine.start(offsets.getPageLeft(mCurrentItem), 0, target, mFrameTime);
+        }
+        mFrameTime += FRAME_NANOS;
+        int scrollX = offsets.clampScrollX(Math.round(mEngine.getPosition()));
+        int currentItem = offsets.getNearestPage(scrollX);
+        blackhole.consume(PagerMath.getFirstWindowPage(currentItem, OFFSCREEN_PAGE_LIMIT));
+        blackhole.consume(PagerMath.getLastWindowPage(currentItem, OFFSCREEN_PAGE_LIMIT, pageCount));
+    }
+
+    private static class BenchmarkHost implements PagerTouchTracker.Host {
+        private final PageOffsetIndex mOffsets = new PageOffsetIndex();
+        int mScrollX;
+        int mSmoothTarget;
+
+        BenchmarkHost(int pageCount) {
+            mOffsets.rebuild(pageCount, PAGE_WIDTH);
+            mOffsets.setViewportWidth(PAGE_WIDTH);
+        }
+
+        @Override
+        public int getPageScrollX() {
+            return mScrollX;
+        }
+
+        @Override
+        public PageOffsetIndex getPageOffsets() {
+            return mOffsets;
+        }
+
+        @Override
+        public void dragBy(int dx) {
+            mScrollX = mOffsets.clampScrollX(mScrollX + dx);
+        }
+
+        @Override
+        public void smoothScrollBy(int dx, float velocityX) {
+            mSmoothTarget = mScrollX - dx;
+        }
+
+        @Override
+        public boolean catchScrollAnimation() {
+            return false;
+        }
+
+        @Override
+        public float projectFlingPosition(float scrollX, float scrollVelocity) {
+            return scrollX + scrollVelocity * Math.abs(scrollVelocity) / (2 * 7500f);
+        }
+
+        @Override
+        public boolean canTouchedChildScrollHorizontally(int direction) {
+            return false;
+        }
+
+        @Override
+        public void onDragStarted() {
+        }
+
+        @Override
+        public void onDragEnded() {
+        }
+
+        @Override
+        public boolean dispatchPreFling(float scrollVelocity) {
+            return false;
+        }
+
+        @Override
+        public void dispatchFling(float scrollVelocity, boolean consumed) {
+        }
+    }
+}
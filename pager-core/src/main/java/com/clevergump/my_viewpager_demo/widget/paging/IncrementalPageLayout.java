@@ -0,0 +1,156 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+/**
+ * 页面窗口的增量布局. 记录窗口内每个页面上次被摆放时的位置 (页面序号, 左边界和宽度), 一次布局中只重新摆放自己请求过
+ * 重新布局的页面 (脏页面), 以及位置发生了变化的页面, 其余页面沿用上次摆放的结果. 因此一次布局的代价只与窗口内
+ * 的页面数有关, 与页面总数无关.
+ *
+ * 每次布局以 {@link #beginPass()} 开始, 对窗口内的每个页面调用 {@link #layoutPage(Object, int, int, int)}, 最后以
+ * {@link #endPass()} 结束. 这次没有经过的页面 (已经离开了窗口) 的记录会被丢弃. 容器的尺寸或者布局方式发生
+ * 变化时, 调用 {@link #invalidateAll()} 让所有页面都重新摆放.
+ *
+ * 记录保存在预先分配的数组中, 只有窗口变大时才会扩容, 布局时不会分配内存.
+ *
+ * @param <P> 页面的类型
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class IncrementalPageLayout<P> {
+
+    /**
+     * 增量布局通过该接口询问页面是否是脏页面, 并摆放页面.
+     */
+    public interface Host<P> {
+        /**
+         * @return 页面自上次摆放以后是否请求过重新布局
+         */
+        boolean isLayoutRequested(P page);
+
+        /**
+         * 把页面摆放到第 position 个页面的位置上.
+         * @param pageLeft 该位置在长条中的左边界
+         * @param pageWidth 该位置的页面宽度
+         */
+        void layoutPage(P page, int position, int pageLeft, int pageWidth);
+    }
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Host<P> mHost;
+
+    // 每个页面的记录: 页面, 上次摆放时的位置, 左边界和宽度, 最近一次经过它的布局的序号.
+    private Object[] mPages = new Object[INITIAL_CAPACITY];
+    private int[] mPositions = new int[INITIAL_CAPACITY];
+    private int[] mLefts = new int[INITIAL_CAPACITY];
+    private int[] mWidths = new int[INITIAL_CAPACITY];
+    private int[] mPasses = new int[INITIAL_CAPACITY];
+    private int mCount;
+
+    // 当前布局的序号
+    private int mPass;
+
+    // 上一次布局中实际摆放的页面数
+    private int mLaidOutCount;
+
+    public IncrementalPageLayout(Host<P> host) {
+        mHost = host;
+    }
+
+    /**
+     * 丢弃所有记录, 下一次布局时所有页面都重新摆放.
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < mCount; i++) {
+            mPages[i] = null;
+        }
+        mCount = 0;
+    }
+
+    public void beginPass() {
+        mPass++;
+        mLaidOutCount = 0;
+    }
+
+    /**
+     * 如果页面是脏页面, 或者它上次被摆放的位置或宽度与这次不同, 就重新摆放它.
+     * @return 是否重新摆放了
+     */
+    public boolean layoutPage(P page, int position, int pageLeft, int pageWidth) {
+        int index = indexOf(page);
+        if (index >= 0 && mPositions[index] == position && mLefts[index] == pageLeft
+                && mWidths[index] == pageWidth && !mHost.isLayoutRequested(page)) {
+            mPasses[index] = mPass;
+            return false;
+        }
+        mHost.layoutPage(page, position, pageLeft, pageWidth);
+        if (index < 0) {
+            index = append(page);
+        }
+        mPositions[index] = position;
+        mLefts[index] = pageLeft;
+        mWidths[index] = pageWidth;
+        mPasses[index] = mPass;
+        mLaidOutCount++;
+        return true;
+    }
+
+    /**
+     * 结束一次布局, 丢弃这次没有经过的页面的记录.
+     */
+    public void endPass() {
+        int kept = 0;
+        for (int i = 0; i < mCount; i++) {
+            if (mPasses[i] == mPass) {
+                mPages[kept] = mPages[i];
+                mPositions[kept] = mPositions[i];
+                mLefts[kept] = mLefts[i];
+                mWidths[kept] = mWidths[i];
+                mPasses[kept] = mPasses[i];
+                kept++;
+            }
+        }
+        for (int i = kept; i < mCount; i++) {
+            mPages[i] = null;
+        }
+        mCount = kept;
+    }
+
+    /**
+     * @return 上一次布局中实际摆放的页面数
+     */
+    public int getLaidOutCount() {
+        return mLaidOutCount;
+    }
+
+    private int indexOf(P page) {
+        for (int i = 0; i < mCount; i++) {
+            if (mPages[i] == page) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int append(P page) {
+        if (mCount == mPages.length) {
+            int capacity = mCount * 2;
+            Object[] pages = new Object[capacity];
+            System.arraycopy(mPages, 0, pages, 0, mCount);
+            mPages = pages;
+            mPositions = grow(mPositions, capacity);
+            mLefts = grow(mLefts, capacity);
+            mWidths = grow(mWidths, capacity);
+            mPasses = grow(mPasses, capacity);
+        }
+        mPages[mCount] = page;
+        return mCount++;
+    }
+
+    private int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, mCount);
+        return grown;
+    }
+}
@@ -0,0 +1,181 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+/**
+ * 页面左边界的索引, 支持每个页面有各自的宽度 (例如露出相邻页面边缘的布局, 0.8 倍宽的卡片, 平板上一屏两页).
+ *
+ * 页面宽度保存在一个树状数组 (Fenwick tree) 中: 根据位置求页面的左边界 (即前缀和), 根据长条中的偏移量求页面,
+ * 以及修改某一个页面的宽度都是 O(log n) 的, 修改一个页面的宽度不需要重新计算其他页面的位置. 只有页面总数发生
+ * 变化时才需要 O(n) 地重建.
+ *
+ * 第 i 个页面停留在视口中时的滑动位置就是它的左边界, 但滑动位置不能超过 {@link #getMaxScrollX()}: 页面比视口窄时,
+ * 最后几个页面一起靠右对齐, 最后一页的右边界不会离开视口的右边界.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class PageOffsetIndex {
+
+    /**
+     * 重建索引时提供每个页面的宽度.
+     */
+    public interface WidthProvider {
+        /**
+         * @return 第 position 个页面的宽度, 必须 > 0.
+         */
+        int getPageWidth(int position);
+    }
+
+    private int mCount;
+
+    // 视口的宽度, 决定最大的滑动位置.
+    private int mViewportWidth;
+
+    // 每个页面的宽度
+    private int[] mWidths = new int[0];
+
+    // 树状数组, 下标从1开始. mTree[i] 是以第 i 个页面 (从1开始) 结尾, 长度为 (i & -i) 的区间内的宽度之和.
+    private int[] mTree = new int[1];
+
+    // 不超过页面总数的最大的2的幂, 用于根据偏移量查找页面.
+    private int mHighestBit;
+
+    /**
+     * 所有页面都使用同一个宽度重建索引.
+     */
+    public void rebuild(int count, final int pageWidth) {
+        rebuild(count, new WidthProvider() {
+            @Override
+            public int getPageWidth(int position) {
+                return pageWidth;
+            }
+        });
+    }
+
+    /**
+     * 重建索引, O(n).
+     * @param count 页面总数
+     * @param provider 提供每个页面的宽度
+     */
+    public void rebuild(int count, WidthProvider provider) {
+        if (mWidths.length < count) {
+            mWidths = new int[count];
+            mTree = new int[count + 1];
+        }
+        mCount = count;
+        mHighestBit = count == 0 ? 0 : Integer.highestOneBit(count);
+        for (int i = 0; i < count; i++) {
+            mWidths[i] = provider.getPageWidth(i);
+            mTree[i + 1] = mWidths[i];
+        }
+        // 每个节点把自己的和累加到父节点上
+        for (int i = 1; i <= count; i++) {
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    /**
+     * 修改一个页面的宽度, O(log n).
+     */
+    public void setPageWidth(int position, int width) {
+        int delta = width - mWidths[position];
+        if (delta == 0) {
+            return;
+        }
+        mWidths[position] = width;
+        for (int i = position + 1; i <= mCount; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * 设置视口的宽度. 默认为0, 使用 {@link #getMaxScrollX()} 和 {@link #clampScrollX(int)} 之前必须设置.
+     */
+    public void setViewportWidth(int viewportWidth) {
+        mViewportWidth = viewportWidth;
+    }
+
+    public int getPageCount() {
+        return mCount;
+    }
+
+    public int getPageWidth(int position) {
+        return mWidths[position];
+    }
+
+    /**
+     * @return 第 position 个页面的左边界, 即它前面所有页面的宽度之和. position 可以等于页面总数, 此时返回总宽度.
+     */
+    public int getPageLeft(int position) {
+        int sum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return 所有页面的宽度之和, 即长条的宽度.
+     */
+    public int getTotalWidth() {
+        return getPageLeft(mCount);
+    }
+
+    /**
+     * 查找长条中的偏移量落在哪一个页面上, O(log n).
+     * @return 页面的位置, 在 [0, pageCount - 1] 范围内. 没有页面时返回0.
+     */
+    public int getPageAt(int offset) {
+        if (offset <= 0 || mCount == 0) {
+            return 0;
+        }
+        // 从高位到低位, 找到左边界不超过 offset 的页面数
+        int position = 0;
+        int remaining = offset;
+        for (int bit = mHighestBit; bit > 0; bit >>= 1) {
+            int next = position + bit;
+            if (next <= mCount && mTree[next] <= remaining) {
+                position = next;
+                remaining -= mTree[next];
+            }
+        }
+        return Math.min(position, mCount - 1);
+    }
+
+    /**
+     * 计算离给定滑动位置最近的页面, 即当前页面. 滑过某一页宽度的一半以后就算作下一页. 滑动到最大的滑动位置时,
+     * 最后一页已经完整地出现在视口中, 当前页面就是最后一页.
+     * @return 页面的位置, 在 [0, pageCount - 1] 范围内.
+     */
+    public int getNearestPage(int scrollX) {
+        int maxScrollX = getMaxScrollX();
+        if (maxScrollX > 0 && scrollX >= maxScrollX) {
+            return mCount - 1;
+        }
+        int page = getPageAt(scrollX);
+        if (page < mCount - 1) {
+            int width = mWidths[page];
+            if (scrollX - getPageLeft(page) >= width - (width >> 1)) {
+                page++;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return 最大的滑动位置, 即长条的右边界与视口的右边界对齐时的滑动位置. 长条比视口窄时为0.
+     */
+    public int getMaxScrollX() {
+        return Math.max(0, getTotalWidth() - mViewportWidth);
+    }
+
+    /**
+     * 把滑动位置限制在 [0, {@link #getMaxScrollX()}] 范围内.
+     */
+    public int clampScrollX(int scrollX) {
+        return Math.max(0, Math.min(scrollX, getMaxScrollX()));
+    }
+}
@@ -0,0 +1,118 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+/**
+ * 分页控件中与 View 无关的计算: 滑动边界的修正, 手指抬起后的目标页面, 页面窗口以及预加载的顺序. 所有方法都是
+ * 不分配内存的静态方法, 不依赖任何 Android 类, 可以直接在 JVM 上测试和做基准测试.
+ *
+ * 滑动位置 (scrollX) 是指第0个页面的左边界到视口左边界的距离. 页面可以有各自的宽度, 页面的左边界和最大的滑动
+ * 位置都由 {@link PageOffsetIndex} 给出.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public final class PagerMath {
+
+    private PagerMath() {
+    }
+
+    /**
+     * 修正要滑动的距离差, 使最左边的页面的左边框和最右边的页面的右边框都不能滑入视口内.
+     * @param dx 要修正的距离差 (手指移动的方向, 向右为正, 与滑动位置的变化方向相反)
+     * @param scrollX 当前的滑动位置
+     * @param offsets 页面位置的索引
+     * @return 修正以后的距离差
+     */
+    public static float clampScrollDelta(float dx, int scrollX, PageOffsetIndex offsets) {
+        float scrolledXDistanceAbs = Math.abs(dx);
+        // 视口左边框以外的剩余宽度
+        int widthOutOfLeftBorder = Math.abs(scrollX);
+        // 如果是向右滑动并且滑动距离大于了左边框以外的剩余宽度, 则要保证最左边的页面的左边界不能滑入视口内
+        if (dx > 0 && scrolledXDistanceAbs > widthOutOfLeftBorder) {
+            dx = widthOutOfLeftBorder;
+        }
+        // 视口右边框以外的剩余宽度
+        int widthOutOfRightBorder = offsets.getMaxScrollX() - scrollX;
+        // 如果是向左滑动并且滑动距离大于了右边框以外的剩余宽度, 则要保证最右边的页面的右边界不能滑入视口内
+        if (dx < 0 && widthOutOfRightBorder >= 0 && scrolledXDistanceAbs > widthOutOfRightBorder) {
+            dx = -widthOutOfRightBorder;
+        }
+        return dx;
+    }
+
+    /**
+     * 速度不够快时, 根据从按下到抬起滑动的距离决定最终停在哪一页: 向左超过按下时页面宽度的一半就翻到下一页,
+     * 向右超过上一页宽度的一半就翻到上一页, 否则回到按下时的页面.
+     * @param downToUpDx 从手指按下到抬起, 在x方向上移动的位置坐标差.
+     * @param downPage 按下时的当前页面
+     * @param offsets 页面位置的索引
+     * @return 目标页面的位置, 可能超出页面的范围, 由调用者通过 {@link #clampScrollDelta} 修正.
+     */
+    public static int getReleaseTargetPage(float downToUpDx, int downPage, PageOffsetIndex offsets) {
+        // 手指向左滑动 (即: 下一页逐渐进入到视口中) 超过页面宽度的一半
+        if (downToUpDx < 0 && downPage < offsets.getPageCount()
+                && -downToUpDx >= offsets.getPageWidth(downPage) >> 1) {
+            return downPage + 1;
+        }
+        // 手指向右滑动 (即: 上一页逐渐进入到视口中) 超过上一页宽度的一半
+        if (downToUpDx > 0 && downPage > 0 && downToUpDx >= offsets.getPageWidth(downPage - 1) >> 1) {
+            return downPage - 1;
+        }
+        return downPage;
+    }
+
+    /**
+     * 根据估算出的惯性滑动终点计算 fling 之后应该停在哪一页: 停在离终点最近的那一页上, 但至少要沿着 fling 的
+     * 方向翻过一页, 否则快速而短促的 fling 会弹回原来的页面.
+     * @param projectedScrollX 估算出的惯性滑动的终点
+     * @param downToUpDx 从手指按下到抬起, 在x方向上移动的位置坐标差. 只使用它的符号作为 fling 的方向, 也可以
+     *                   传入手指的速度.
+     * @param downPage 按下时的当前页面
+     * @param offsets 页面位置的索引
+     * @return 目标页面的位置, 在 [0, pageCount - 1] 范围内.
+     */
+    public static int getFlingTargetPage(float projectedScrollX, float downToUpDx, int downPage,
+                                         PageOffsetIndex offsets) {
+        int targetPage = offsets.getNearestPage(Math.round(projectedScrollX));
+        if (downToUpDx < 0) {
+            targetPage = Math.max(targetPage, downPage + 1);
+        } else {
+            targetPage = Math.min(targetPage, downPage - 1);
+        }
+        return clampPage(targetPage, offsets.getPageCount());
+    }
+
+    public static int clampPage(int page, int pageCount) {
+        return Math.max(0, Math.min(page, pageCount - 1));
+    }
+
+    /**
+     * @return 页面窗口中的第一个页面, 即当前页面左侧保留 offscreenPageLimit 个页面.
+     */
+    public static int getFirstWindowPage(int currentItem, int offscreenPageLimit) {
+        return Math.max(0, currentItem - offscreenPageLimit);
+    }
+
+    /**
+     * @return 页面窗口中的最后一个页面, 即当前页面右侧保留 offscreenPageLimit 个页面.
+     */
+    public static int getLastWindowPage(int currentItem, int offscreenPageLimit, int pageCount) {
+        return Math.min(pageCount - 1, currentItem + offscreenPageLimit);
+    }
+
+    /**
+     * 按可能性从高到低, 给出页面窗口以外第 rank 个应该提前准备的页面: 先是沿着滑动方向紧挨着窗口的 aheadCount 个
+     * 页面, 然后是反方向紧挨着窗口的页面.
+     * @param rank 可能性的排名, 从0开始.
+     * @param swipeDirection 最近一次翻页的方向, 1 表示翻到了下一页, -1 表示翻到了上一页.
+     * @param aheadCount 沿着滑动方向准备的页面数
+     * @return 页面的位置, 可能超出页面的范围, 由调用者跳过.
+     */
+    public static int getPreloadPage(int rank, int currentItem, int offscreenPageLimit, int swipeDirection,
+                                     int aheadCount) {
+        if (rank < aheadCount) {
+            return currentItem + swipeDirection * (offscreenPageLimit + 1 + rank);
+        }
+        return currentItem - swipeDirection * (offscreenPageLimit + 1 + rank - aheadCount);
+    }
+}
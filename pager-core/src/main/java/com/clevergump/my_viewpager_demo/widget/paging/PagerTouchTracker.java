@@ -0,0 +1,438 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+/**
+ * 分页控件的触摸状态机: 判断是否拦截事件序列, 拖动时让页面跟随手指移动, 手指抬起后根据速度和滑动距离决定
+ * 最终停在哪一页. 状态机只处理事件的类型, 坐标和时间, 页面的移动通过 {@link Host} 交给控件完成, 所以不依赖任何
+ * Android 类, 可以在 JVM 上重放一次完整的手势.
+ *
+ * 事件类型的取值与 android.view.MotionEvent 中对应的常量相同, 可以直接传入 MotionEvent.getAction().
+ *
+ * 每个事件的处理过程都不分配内存, 也不使用开方, 幂函数等耗时的数学运算.
+ *
+ * 手指从按下的位置移动超过 touchSlop 以后进入拖动状态, 此后的每一个采样点 (包括 ACTION_MOVE 中批量携带的历史
+ * 采样点) 都会让页面跟随移动, 不再忽略小于 touchSlop 的移动. 拖动中的滑动位置以浮点数累计, 只在交给控件时取整,
+ * 所以页面与手指之间的误差始终小于 1px.
+ *
+ * 拦截之前会先询问按下位置上的子View (包括它的所有祖先, 直到分页控件为止) 能否沿手指移动的方向水平滚动, 能滚动时
+ * 本次事件序列交给子View处理, 分页控件不再拦截. 询问的结果在一次事件序列中按方向缓存, 每个 ACTION_MOVE 的额外
+ * 开销是常数.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class PagerTouchTracker {
+
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+
+    /**
+     * 由分页控件实现, 提供页面的尺寸和滑动位置, 并执行页面的移动.
+     */
+    public interface Host {
+        /**
+         * @return 当前的滑动位置, 即第0个页面的左边界到视口左边界的距离.
+         */
+        int getPageScrollX();
+
+        /**
+         * @return 页面左边界的索引, 提供页面总数和每个页面的宽度.
+         */
+        PageOffsetIndex getPageOffsets();
+
+        /**
+         * 拖动状态下让页面立即移动, 滑动位置增加 dx. 由控件负责边界限制, 以及把自己消费不了的部分交给外层的
+         * 滚动容器 (嵌套滚动).
+         */
+        void dragBy(int dx);
+
+        /**
+         * 平滑移动. 如果上一次的平滑移动还没有结束, 则保持当前的位置和速度, 改为向新的目标移动.
+         * @param dx 在x方向上平滑移动的距离 (与手指移动的方向相同, 滑动位置减少 dx)
+         * @param velocityX 开始移动时在x方向上的 (手指的) 速度, 单位: px/s.
+         */
+        void smoothScrollBy(int dx, float velocityX);
+
+        /**
+         * 如果页面正在平滑移动, 就让它停在当前位置.
+         * @return 调用时页面是否正在平滑移动
+         */
+        boolean catchScrollAnimation();
+
+        /**
+         * 估算以给定速度惯性滑动后最终会停在哪里.
+         * @param scrollX 起始的滑动位置
+         * @param scrollVelocity 滑动位置的变化速度, 与手指的速度方向相反.
+         */
+        float projectFlingPosition(float scrollX, float scrollVelocity);
+
+        /**
+         * 按下位置上的子View能否水平滚动. 每次事件序列中, 每个方向最多询问一次.
+         * @param direction 与 View.canScrollHorizontally(int) 的参数相同: 负数表示向左滚动 (手指向右移动),
+         *                  正数表示向右滚动 (手指向左移动).
+         */
+        boolean canTouchedChildScrollHorizontally(int direction);
+
+        /**
+         * 开始拖动. 此后直到 {@link #onDragEnded()} 之前, 外层的容器不应该再拦截本次事件序列.
+         */
+        void onDragStarted();
+
+        void onDragEnded();
+
+        /**
+         * 手指抬起时, 在页面开始惯性滑动之前, 先询问外层的滚动容器是否要消费这次 fling.
+         * @param scrollVelocity 滑动位置的变化速度, 与手指的速度方向相反.
+         * @return 外层的滚动容器是否消费了这次 fling
+         */
+        boolean dispatchPreFling(float scrollVelocity);
+
+        /**
+         * 通知外层的滚动容器这次 fling 的速度, 以及页面是否消费了它. 页面已经到达边界而没有消费时, 外层的滚动容器
+         * 可以继续 fling.
+         * @param scrollVelocity 滑动位置的变化速度, 与手指的速度方向相反.
+         */
+        void dispatchFling(float scrollVelocity, boolean consumed);
+    }
+
+    // 子View能否水平滚动的缓存, 每次 ACTION_DOWN 时清空.
+    private static final int CHILD_SCROLL_LEFT_KNOWN = 1;
+    private static final int CHILD_SCROLL_LEFT = 1 << 1;
+    private static final int CHILD_SCROLL_RIGHT_KNOWN = 1 << 2;
+    private static final int CHILD_SCROLL_RIGHT = 1 << 3;
+
+    private final Host mHost;
+
+    // 跟踪手指移动的速度. 从 ACTION_DOWN 开始 (包括拦截之前的事件) 记录, 到手指抬起时计算出 fling 的速度.
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator();
+
+    // 一个滑动事件被认可为滑动所必须滑动的最小距离.
+    private final int mTouchSlop;
+    // mTouchSlop 的平方, 用于直接与距离的平方比较, 省去开方运算.
+    private final int mTouchSlopSquare;
+    private final int mMinimumFlingVelocity;
+    private final int mMaximumFlingVelocity;
+    private final int mMinFlingDistance;
+
+    // 发生 ACTION_DOWN 时的 rawX, rawY.
+    private float mDownRawX;
+    private float mDownRawY;
+
+    // 发生 ACTION_DOWN 时的当前页面, 即离滑动位置最近的页面 (从0开始). 手指抬起后以它为起点决定停在哪一页.
+    // 不能使用手指下面的页面: 页面比视口窄时, 手指可能按在露出一部分的相邻页面上.
+    private int mDownPage;
+
+    // 子View能否水平滚动的缓存, 由 CHILD_SCROLL_* 组合而成.
+    private int mChildScrollFlags;
+
+    // 本次事件序列是否已经交给了可以水平滚动的子View. 交给子View以后, 直到手指抬起都不再拦截.
+    private boolean mChildOwnsGesture;
+
+    // 是否处于拖动状态. 拖动状态下页面跟随每一个采样点移动.
+    private boolean mIsBeingDragged;
+
+    // 拖动状态下, 上一个采样点的x坐标.
+    private float mLastDragRawX;
+
+    // 拖动状态下, 没有取整, 也没有经过边界限制的滑动位置.
+    private float mDragScrollX;
+
+    // 拖动状态下, 已经交给控件的滑动位置, 即 mDragScrollX 取整后的值.
+    private int mAppliedDragScrollX;
+
+    /**
+     * @param host 分页控件
+     * @param touchSlop 被认可为滑动所必须滑动的最小距离, 单位: px.
+     * @param minimumFlingVelocity 被认可为 fling 的最小速度, 单位: px/s.
+     * @param maximumFlingVelocity fling 速度的上限, 单位: px/s.
+     * @param minFlingDistance 被认可为 fling 的从按下到抬起的最小滑动距离, 单位: px.
+     */
+    public PagerTouchTracker(Host host, int touchSlop, int minimumFlingVelocity, int maximumFlingVelocity,
+                             int minFlingDistance) {
+        if (host == null) {
+            throw new IllegalArgumentException("Host must not be null");
+        }
+        mHost = host;
+        mTouchSlop = touchSlop;
+        mTouchSlopSquare = touchSlop * touchSlop;
+        mMinimumFlingVelocity = minimumFlingVelocity;
+        mMaximumFlingVelocity = maximumFlingVelocity;
+        mMinFlingDistance = minFlingDistance;
+    }
+
+    /**
+     * 记录一个批量携带的历史采样点, 用于计算速度. 拖动状态下还会更新页面跟随的位置, 页面在处理该事件时一次性
+     * 移动到最新的位置. 需要在处理该事件之前, 按时间顺序调用.
+     * @param eventTimeMillis 采样时间, 单位: 毫秒.
+     * @param rawX 采样点在屏幕上的x坐标
+     */
+    public void addHistoricalMovement(long eventTimeMillis, float rawX) {
+        mVelocityEstimator.addMovement(eventTimeMillis, rawX);
+        if (mIsBeingDragged) {
+            dragTo(rawX);
+        }
+    }
+
+    /**
+     * @return 是否拦截本次事件序列
+     */
+    public boolean onInterceptTouchEvent(int action, float rawX, float rawY, long eventTimeMillis) {
+        boolean intercept = false;
+        // 拦截之前的事件也要记录下来, 否则刚开始拦截时计算出的速度会偏小.
+        trackVelocity(action, rawX, eventTimeMillis);
+        switch (action) {
+            case ACTION_DOWN:
+                // 在页面移动的过程中按下, 说明用户想抓住正在移动的页面, 直接拦截本次事件序列并开始拖动.
+                intercept = mHost.catchScrollAnimation();
+                mDownRawX = rawX;
+                mDownRawY = rawY;
+                mIsBeingDragged = false;
+                mChildScrollFlags = 0;
+                mChildOwnsGesture = false;
+                if (intercept) {
+                    startDrag(rawX);
+                }
+                // 记下手指按下时的当前页面. 该页面结合手指抬起时一共滑动的距离, 可以计算出手指抬起后,
+                // 页面要进行平滑滑动的方向和滑动距离.
+                mDownPage = mHost.getPageOffsets().getNearestPage(mHost.getPageScrollX());
+                break;
+            case ACTION_MOVE:
+                if (mChildOwnsGesture) {
+                    return false;
+                }
+                float dx = rawX - mDownRawX;
+                float dy = rawY - mDownRawY;
+                // 滑动距离太短, 直接不拦截.
+                if (dx * dx + dy * dy < mTouchSlopSquare) {
+                    return false;
+                }
+
+                // 此时的滑动距离已经大于了 mTouchSlop
+
+                // 如果主要是向水平方向滑动, 并且子View不能沿这个方向滚动, 那么就拦截
+                if (Math.abs(dx) >= Math.abs(dy)) {
+                    if (canTouchedChildScroll(dx < 0 ? 1 : -1)) {
+                        mChildOwnsGesture = true;
+                        return false;
+                    }
+                    intercept = true;
+                    startDragPastSlop(rawX);
+                }
+                break;
+        }
+        return intercept;
+    }
+
+    /**
+     * @return 是否消费了本次事件
+     */
+    public boolean onTouchEvent(int action, float rawX, long eventTimeMillis) {
+        // ACTION_DOWN 一定已经在 onInterceptTouchEvent() 中记录过了, 不能重复记录.
+        if (action != ACTION_DOWN) {
+            trackVelocity(action, rawX, eventTimeMillis);
+        }
+
+        switch (action) {
+            case ACTION_DOWN:
+                // 如果上一次的平滑移动还没有结束, 那么就让页面停在当前位置
+                if (mHost.catchScrollAnimation()) {
+                    startDrag(rawX);
+                }
+                break;
+            case ACTION_MOVE:
+                // 只在开始拖动时判断一次 touchSlop. 进入拖动状态以后, 再小的移动也要跟随.
+                if (!mIsBeingDragged) {
+                    if (!isScrollExceedingTouchSlop(rawX - mDownRawX)) {
+                        return true;
+                    }
+                    startDragPastSlop(rawX);
+                }
+                dragTo(rawX);
+                applyDrag();
+                break;
+            case ACTION_UP:
+                boolean wasBeingDragged = mIsBeingDragged;
+                if (wasBeingDragged) {
+                    dragTo(rawX);
+                    applyDrag();
+                    mIsBeingDragged = false;
+                }
+
+                float velocityX = mVelocityEstimator.computeVelocity(1000, mMaximumFlingVelocity);
+                mVelocityEstimator.clear();
+                // 外层的滚动容器消费了这次 fling 时, 页面不再惯性滑动, 只按滑动的距离决定停在哪一页.
+                // 手指向右滑动时, 滑动位置变小, 所以滑动位置的速度与手指的速度方向相反.
+                if (wasBeingDragged && velocityX != 0 && mHost.dispatchPreFling(-velocityX)) {
+                    velocityX = 0;
+                }
+                int scrollXBeforeSettle = mHost.getPageScrollX();
+                int targetScrollX = settle(mDownPage, rawX - mDownRawX, velocityX);
+                if (wasBeingDragged) {
+                    if (velocityX != 0) {
+                        mHost.dispatchFling(-velocityX, targetScrollX != scrollXBeforeSettle);
+                    }
+                    mHost.onDragEnded();
+                }
+                break;
+            case ACTION_CANCEL:
+                // 事件序列被上层打断了, 回到按下前的位置.
+                if (mIsBeingDragged) {
+                    mIsBeingDragged = false;
+                    mHost.onDragEnded();
+                }
+                mVelocityEstimator.clear();
+                smoothScrollToPage(mDownPage, 0);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 拖动结束后, 根据速度和滑动距离决定最终停在哪一页, 并平滑移动过去. 除了手指抬起以外, 由嵌套的子View
+     * 驱动的拖动结束时也使用这个方法.
+     * @param startPage 开始拖动时的页面
+     * @param dragDx 从开始拖动到结束, 在x方向上移动的位置坐标差 (与手指移动的方向相同).
+     * @param velocityX 结束时在x方向上的 (手指的) 速度, 单位: px/s.
+     * @return 目标页面的滑动位置
+     */
+    public int settle(int startPage, float dragDx, float velocityX) {
+        int targetPage;
+        // 速度足够快时, 根据速度和滑动距离一起决定最终停在哪一页, 一次快速的 fling 可以连续翻过好几页.
+        if (Math.abs(velocityX) >= mMinimumFlingVelocity && Math.abs(dragDx) >= mMinFlingDistance) {
+            return fling(startPage, velocityX);
+        }
+        // 否则滑动的距离超过页面宽度的一半时翻到上一页或下一页, 不超过时回到原先的页面. 这几种情况也以
+        // 结束时的速度开始移动, 使页面的运动从手指上自然地衔接过来.
+        else {
+            targetPage = PagerMath.getReleaseTargetPage(dragDx, startPage, mHost.getPageOffsets());
+        }
+        return smoothScrollToPage(targetPage, velocityX);
+    }
+
+    /**
+     * 由嵌套的子View驱动的拖动结束后, 决定最终停在哪一页. 与 {@link #settle(int, float, float)} 不同, 速度足够快时
+     * 不要求滑动的距离, 因为子View可能刚刚滚动到边界, 页面还没来得及移动, 这次 fling 就应该交给页面.
+     * @param startPage 开始嵌套滚动时的页面
+     * @param dragDx 从开始嵌套滚动到结束, 页面在x方向上移动的位置坐标差 (与手指移动的方向相同).
+     * @param velocityX 结束时在x方向上的 (手指的) 速度, 单位: px/s.
+     * @return 目标页面的滑动位置
+     */
+    public int settleNestedScroll(int startPage, float dragDx, float velocityX) {
+        if (Math.abs(velocityX) >= mMinimumFlingVelocity) {
+            return fling(startPage, velocityX);
+        }
+        return settle(startPage, dragDx, velocityX);
+    }
+
+    /**
+     * 以给定的速度 fling, 停在离惯性滑动终点最近的那一页上, 但至少沿 fling 的方向翻过一页.
+     * @return 目标页面的滑动位置
+     */
+    private int fling(int startPage, float velocityX) {
+        // 手指向右滑动时, 滑动位置变小, 所以滑动位置的速度与手指的速度方向相反.
+        float projectedScrollX = mHost.projectFlingPosition(mHost.getPageScrollX(), -velocityX);
+        int targetPage = PagerMath.getFlingTargetPage(projectedScrollX, velocityX, startPage,
+                mHost.getPageOffsets());
+        return smoothScrollToPage(targetPage, velocityX);
+    }
+
+    /**
+     * @return 是否处于拖动状态
+     */
+    public boolean isBeingDragged() {
+        return mIsBeingDragged;
+    }
+
+    /**
+     * 按下位置上的子View能否沿给定的方向水平滚动. 结果在本次事件序列中缓存.
+     */
+    private boolean canTouchedChildScroll(int direction) {
+        int knownFlag = direction < 0 ? CHILD_SCROLL_LEFT_KNOWN : CHILD_SCROLL_RIGHT_KNOWN;
+        int canScrollFlag = direction < 0 ? CHILD_SCROLL_LEFT : CHILD_SCROLL_RIGHT;
+        if ((mChildScrollFlags & knownFlag) == 0) {
+            mChildScrollFlags |= knownFlag;
+            if (mHost.canTouchedChildScrollHorizontally(direction)) {
+                mChildScrollFlags |= canScrollFlag;
+            }
+        }
+        return (mChildScrollFlags & canScrollFlag) != 0;
+    }
+
+    private void trackVelocity(int action, float rawX, long eventTimeMillis) {
+        if (action == ACTION_DOWN) {
+            mVelocityEstimator.clear();
+        }
+        mVelocityEstimator.addMovement(eventTimeMillis, rawX);
+    }
+
+    /**
+     * 以给定的速度平滑移动到某一页, 然后停止. 超出页面范围时停在第一页或最后一页.
+     * @param page 目标页面的位置
+     * @param velocityX 开始移动时在x方向上的 (手指的) 速度, 单位: px/s.
+     * @return 目标页面的滑动位置
+     */
+    private int smoothScrollToPage(int page, float velocityX) {
+        int scrollX = mHost.getPageScrollX();
+        PageOffsetIndex offsets = mHost.getPageOffsets();
+        page = PagerMath.clampPage(page, offsets.getPageCount());
+        float dx = scrollX - offsets.getPageLeft(page);
+        dx = PagerMath.clampScrollDelta(dx, scrollX, offsets);
+        int roundedDx = Math.round(dx);
+        mHost.smoothScrollBy(roundedDx, velocityX);
+        return scrollX - roundedDx;
+    }
+
+    /**
+     * 判断给定的滑动坐标差所代表的滑动距离是否超过了 touchSlop
+     * @param deltaDistance 滑动坐标差, 可能为正数, 也可能为负数.
+     * @return true表示超过了, false表示未超过.
+     */
+    private boolean isScrollExceedingTouchSlop(float deltaDistance) {
+        return Math.abs(deltaDistance) >= mTouchSlop;
+    }
+
+    /**
+     * 从给定的采样点开始拖动, 页面从当前位置开始跟随手指移动.
+     */
+    private void startDrag(float rawX) {
+        mIsBeingDragged = true;
+        mLastDragRawX = rawX;
+        mAppliedDragScrollX = mHost.getPageScrollX();
+        mDragScrollX = mAppliedDragScrollX;
+        mHost.onDragStarted();
+    }
+
+    /**
+     * 手指移动超过 touchSlop 后开始拖动. 以按下的位置向移动方向偏移 touchSlop 处作为拖动的起点, 使页面从此刻
+     * 开始平滑地跟随手指, 而不是一下子跳过 touchSlop 这段距离. 拦截时比较的是二维的移动距离, 斜着越过 touchSlop
+     * 时水平方向的移动可能还不到 touchSlop, 此时偏移量不能超过水平方向的移动, 否则起点会跑到手指的前面,
+     * 下一次移动时页面会反方向移动.
+     */
+    private void startDragPastSlop(float rawX) {
+        float slopX = Math.min(Math.abs(rawX - mDownRawX), mTouchSlop);
+        startDrag(rawX > mDownRawX ? mDownRawX + slopX : mDownRawX - slopX);
+    }
+
+    /**
+     * 拖动状态下, 让页面跟随手指移动到给定的采样点. 只更新没有取整的滑动位置, 由 {@link #applyDrag()} 交给控件.
+     */
+    private void dragTo(float rawX) {
+        mDragScrollX -= rawX - mLastDragRawX;
+        mLastDragRawX = rawX;
+    }
+
+    /**
+     * 把拖动的滑动位置取整后, 将与上一次取整结果的差交给控件. 边界限制由控件完成, 超出边界的部分可以交给外层的
+     * 滚动容器. 每次的差值都是相对于取整后的累计值计算的, 所以取整误差不会累积.
+     */
+    private void applyDrag() {
+        int dragScrollX = Math.round(mDragScrollX);
+        int dx = dragScrollX - mAppliedDragScrollX;
+        if (dx != 0) {
+            mAppliedDragScrollX = dragScrollX;
+            mHost.dragBy(dx);
+        }
+    }
+}
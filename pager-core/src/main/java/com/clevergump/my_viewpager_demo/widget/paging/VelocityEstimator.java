@@ -0,0 +1,91 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+/**
+ * 一维的速度估算器, 作用与 android.view.VelocityTracker 相同: 记录最近的采样点, 对最近
+ * {@link #HORIZON_MILLIS} 毫秒内的采样点做最小二乘直线拟合, 直线的斜率就是速度.
+ *
+ * 采样点保存在预先分配好的环形数组中, 记录和计算都不会分配内存.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class VelocityEstimator {
+
+    // 最多保留的采样点数
+    private static final int HISTORY_SIZE = 20;
+
+    // 只使用最近这段时间内的采样点, 单位: 毫秒.
+    private static final long HORIZON_MILLIS = 100;
+
+    // 两个采样点之间超过这段时间没有移动, 就认为手指已经停下, 之前的采样点不再参与计算.
+    private static final long ASSUME_STOPPED_MILLIS = 40;
+
+    private final float[] mPositions = new float[HISTORY_SIZE];
+    private final long[] mTimes = new long[HISTORY_SIZE];
+
+    // 最新的采样点在环形数组中的下标
+    private int mIndex = -1;
+    private int mCount;
+
+    public void clear() {
+        mIndex = -1;
+        mCount = 0;
+    }
+
+    /**
+     * 记录一个采样点. 采样点必须按时间顺序添加.
+     * @param timeMillis 采样时间, 单位: 毫秒.
+     * @param position 采样位置, 单位: 像素.
+     */
+    public void addMovement(long timeMillis, float position) {
+        if (mCount > 0 && timeMillis - mTimes[mIndex] > ASSUME_STOPPED_MILLIS) {
+            clear();
+        }
+        mIndex = (mIndex + 1) % HISTORY_SIZE;
+        mPositions[mIndex] = position;
+        mTimes[mIndex] = timeMillis;
+        if (mCount < HISTORY_SIZE) {
+            mCount++;
+        }
+    }
+
+    /**
+     * 计算当前的速度.
+     * @param units 速度的单位, 1 表示 像素/毫秒, 1000 表示 像素/秒.
+     * @param maxVelocity 速度绝对值的上限
+     * @return 速度. 采样点不足两个时返回0.
+     */
+    public float computeVelocity(int units, float maxVelocity) {
+        if (mCount < 2) {
+            return 0;
+        }
+        long newestTime = mTimes[mIndex];
+        // 以最新的采样点为原点, 避免时间戳太大导致的精度损失.
+        float sumT = 0;
+        float sumX = 0;
+        float sumTT = 0;
+        float sumTX = 0;
+        int n = 0;
+        for (int i = 0, index = mIndex; i < mCount; i++) {
+            long age = newestTime - mTimes[index];
+            if (age > HORIZON_MILLIS) {
+                break;
+            }
+            float t = -age;
+            float x = mPositions[index] - mPositions[mIndex];
+            sumT += t;
+            sumX += x;
+            sumTT += t * t;
+            sumTX += t * x;
+            n++;
+            index = index == 0 ? HISTORY_SIZE - 1 : index - 1;
+        }
+        float denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator == 0) {
+            return 0;
+        }
+        float velocity = (n * sumTX - sumT * sumX) / denominator * units;
+        return Math.max(-maxVelocity, Math.min(velocity, maxVelocity));
+    }
+}
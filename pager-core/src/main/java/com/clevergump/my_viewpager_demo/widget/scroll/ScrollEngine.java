@@ -0,0 +1,63 @@
+package com.clevergump.my_viewpager_demo.widget.scroll;
+
+/**
+ * 页面平滑移动所使用的动画引擎. 引擎只负责根据时间计算出一维的位置和速度, 不依赖任何 Android 类, 可以直接
+ * 在 JVM 上进行单元测试.
+ *
+ * 与 Scroller 按固定时长插值不同, 引擎的动画时长由剩余距离和当前速度共同决定, 并且
+ * 在动画进行中可以随时改变目标位置 ({@link #retarget(float, long)}) 或者停在当前位置 ({@link #stop(long)}),
+ * 位置和速度都是连续的, 不会出现跳变.
+ *
+ * 所有时间参数的单位都是纳秒, 位置的单位是像素, 速度的单位是 像素/秒.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public interface ScrollEngine {
+
+    /**
+     * 从给定的位置和速度开始, 向目标位置移动.
+     * @param position 起始位置
+     * @param velocity 起始速度
+     * @param target 目标位置
+     * @param timeNanos 开始的时间
+     */
+    void start(float position, float velocity, float target, long timeNanos);
+
+    /**
+     * 保持当前的位置和速度不变, 改为向新的目标位置移动. 动画已经结束时, 以当前位置和0速度重新开始.
+     * @param target 新的目标位置
+     * @param timeNanos 改变目标的时间
+     */
+    void retarget(float target, long timeNanos);
+
+    /**
+     * 计算给定时间的位置和速度.
+     * @param timeNanos 当前时间
+     * @return 动画是否还在进行中. 返回 false 时位置已经等于目标位置.
+     */
+    boolean computeOffset(long timeNanos);
+
+    /**
+     * 立即停在给定时间的位置上, 而不是跳到目标位置.
+     * @param timeNanos 停止的时间
+     */
+    void stop(long timeNanos);
+
+    boolean isFinished();
+
+    float getPosition();
+
+    float getVelocity();
+
+    float getTarget();
+
+    /**
+     * 估算以给定速度惯性滑动 (fling) 后最终会停在哪里, 用于在 fling 开始时决定目标页面.
+     * @param position 起始位置
+     * @param velocity 起始速度
+     * @return 估算的最终位置
+     */
+    float projectFlingPosition(float position, float velocity);
+}
@@ -0,0 +1,142 @@
+package com.clevergump.my_viewpager_demo.widget.scroll;
+
+/**
+ * 基于临界阻尼弹簧的动画引擎. 位置的变化满足 x'' = -k(x - target) - 2√k·x', 其解析解为
+ * x(t) = target + (c1 + c2·t)·e^(-ωt), 其中 ω = √k, c1 = x0 - target, c2 = v0 + ω·c1.
+ *
+ * 由于使用解析解而不是逐帧积分, 任意时刻的位置只取决于经过的时间, 掉帧也不会累积误差. 改变目标时, 以当时的
+ * 位置和速度作为新的初始状态, 所以整个过程中位置和速度都是连续的. 剩余距离越远, 初速度越小, 动画时长就越长.
+ *
+ * 临界阻尼的解在 c1 与 c2 异号时会越过目标一次, 即朝向目标的初速度大于 ω·|c1| 时. 目标通常是第一页或最后一页,
+ * 越过目标就会露出页面以外的空白, 所以朝向目标的初速度被限制为 ω·|c1|, 此时 c2 = 0, 位置单调地趋近目标.
+ *
+ * @author zhangzhiyi
+ * @version 1.0
+ * @projectName MyViewPagerDemo
+ */
+public class SpringScrollEngine implements ScrollEngine {
+
+    // 默认的弹簧刚度. ω = 30 时, 移动一页 (1080 px) 大约需要 300 ms.
+    public static final float DEFAULT_STIFFNESS = 900f;
+
+    // 离目标位置小于该距离 (像素), 并且速度小于 VELOCITY_THRESHOLD 时, 认为动画已经结束.
+    private static final float POSITION_THRESHOLD = 0.5f;
+    private static final float VELOCITY_THRESHOLD = 10f;
+
+    private static final float NANOS_PER_SECOND = 1000000000f;
+
+    private final float mOmega;
+    private final float mFlingDeceleration;
+
+    private boolean mFinished = true;
+    private long mStartTimeNanos;
+    private float mTarget;
+    private float mC1;
+    private float mC2;
+    private float mPosition;
+    private float mVelocity;
+
+    /**
+     * @param stiffness 弹簧刚度, 越大动画越快.
+     * @param flingDeceleration 惯性滑动的减速度, 单位: 像素/秒², 用于 {@link #projectFlingPosition(float, float)}.
+     */
+    public SpringScrollEngine(float stiffness, float flingDeceleration) {
+        if (stiffness <= 0 || flingDeceleration <= 0) {
+            throw new IllegalArgumentException("stiffness and flingDeceleration must be positive");
+        }
+        mOmega = (float) Math.sqrt(stiffness);
+        mFlingDeceleration = flingDeceleration;
+    }
+
+    @Override
+    public void start(float position, float velocity, float target, long timeNanos) {
+        mStartTimeNanos = timeNanos;
+        mTarget = target;
+        mPosition = position;
+        mC1 = position - target;
+        // 朝向目标的速度过大时会越过目标, 限制为刚好不越过的速度.
+        float maxVelocity = mOmega * Math.abs(mC1);
+        if (velocity * mC1 < 0 && Math.abs(velocity) > maxVelocity) {
+            velocity = velocity > 0 ? maxVelocity : -maxVelocity;
+        }
+        mVelocity = velocity;
+        mC2 = velocity + mOmega * mC1;
+        mFinished = isAtRest(mC1, velocity);
+        if (mFinished) {
+            mPosition = target;
+            mVelocity = 0;
+        }
+    }
+
+    @Override
+    public void retarget(float target, long timeNanos) {
+        if (mFinished) {
+            start(mPosition, 0, target, timeNanos);
+            return;
+        }
+        computeOffset(timeNanos);
+        start(mPosition, mVelocity, target, timeNanos);
+    }
+
+    @Override
+    public boolean computeOffset(long timeNanos) {
+        if (mFinished) {
+            return false;
+        }
+        float t = Math.max(0, timeNanos - mStartTimeNanos) / NANOS_PER_SECOND;
+        float decay = (float) Math.exp(-mOmega * t);
+        float offset = (mC1 + mC2 * t) * decay;
+        mVelocity = (mC2 - mOmega * (mC1 + mC2 * t)) * decay;
+        if (isAtRest(offset, mVelocity)) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mFinished = true;
+            return false;
+        }
+        mPosition = mTarget + offset;
+        return true;
+    }
+
+    @Override
+    public void stop(long timeNanos) {
+        if (mFinished) {
+            return;
+        }
+        computeOffset(timeNanos);
+        mTarget = mPosition;
+        mVelocity = 0;
+        mFinished = true;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    @Override
+    public float getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    @Override
+    public float getTarget() {
+        return mTarget;
+    }
+
+    /**
+     * 假设以恒定的减速度 a 减速, 则还能滑动的距离为 v² / 2a.
+     */
+    @Override
+    public float projectFlingPosition(float position, float velocity) {
+        return position + velocity * Math.abs(velocity) / (2 * mFlingDeceleration);
+    }
+
+    private static boolean isAtRest(float offset, float velocity) {
+        return Math.abs(offset) < POSITION_THRESHOLD && Math.abs(velocity) < VELOCITY_THRESHOLD;
+    }
+}
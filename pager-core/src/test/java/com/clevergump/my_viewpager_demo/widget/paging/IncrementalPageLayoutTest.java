@@ -0,0 +1,113 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalPageLayoutTest {
+
+    private static final int PAGE_WIDTH = 1080;
+
+    private FakeHost mHost;
+    private IncrementalPageLayout<FakePage> mLayout;
+    private FakePage[] mPages;
+
+    @Before
+    public void setUp() {
+        mHost = new FakeHost();
+        mLayout = new IncrementalPageLayout<FakePage>(mHost);
+        mPages = new FakePage[]{new FakePage(), new FakePage(), new FakePage()};
+    }
+
+    @Test
+    public void onlyDirtyPagesAreLaidOutAgain() {
+        layoutWindow(4);
+        assertEquals(3, mLayout.getLaidOutCount());
+
+        layoutWindow(4);
+        assertEquals(0, mLayout.getLaidOutCount());
+
+        mPages[1].mLayoutRequested = true;
+        layoutWindow(4);
+        assertEquals(1, mLayout.getLaidOutCount());
+        assertFalse(mPages[1].mLayoutRequested);
+    }
+
+    @Test
+    public void movedPagesAreLaidOutAgain() {
+        layoutWindow(4);
+        // 页面被回收后绑定到了另一个位置上.
+        layoutWindow(5);
+        assertEquals(3, mLayout.getLaidOutCount());
+        assertEquals(5 * PAGE_WIDTH, mPages[0].mLeft);
+    }
+
+    @Test
+    public void resizedPagesAreLaidOutAgain() {
+        layoutWindow(4);
+        mLayout.beginPass();
+        for (int i = 0; i < mPages.length; i++) {
+            int position = 4 + i;
+            mLayout.layoutPage(mPages[i], position, position * PAGE_WIDTH,
+                    i == 2 ? PAGE_WIDTH / 2 : PAGE_WIDTH);
+        }
+        mLayout.endPass();
+        assertEquals(1, mLayout.getLaidOutCount());
+    }
+
+    @Test
+    public void invalidateAllAndDroppedPagesForceLayout() {
+        layoutWindow(4);
+        mLayout.invalidateAll();
+        layoutWindow(4);
+        assertEquals(3, mLayout.getLaidOutCount());
+
+        // 一次布局中没有经过的页面 (离开了窗口) 的记录被丢弃, 再回到窗口时要重新摆放.
+        mLayout.beginPass();
+        mLayout.layoutPage(mPages[0], 4, 4 * PAGE_WIDTH, PAGE_WIDTH);
+        mLayout.endPass();
+        layoutWindow(4);
+        assertEquals(2, mLayout.getLaidOutCount());
+    }
+
+    @Test
+    public void recordsGrowWithTheWindow() {
+        mLayout.beginPass();
+        for (int position = 0; position < 20; position++) {
+            int pageLeft = position * PAGE_WIDTH;
+            assertTrue(mLayout.layoutPage(new FakePage(), position, pageLeft, PAGE_WIDTH));
+        }
+        mLayout.endPass();
+        assertEquals(20, mLayout.getLaidOutCount());
+    }
+
+    private void layoutWindow(int firstPosition) {
+        mLayout.beginPass();
+        for (int i = 0; i < mPages.length; i++) {
+            int position = firstPosition + i;
+            mLayout.layoutPage(mPages[i], position, position * PAGE_WIDTH, PAGE_WIDTH);
+        }
+        mLayout.endPass();
+    }
+
+    private static class FakePage {
+        boolean mLayoutRequested;
+        int mLeft = -1;
+    }
+
+    private static class FakeHost implements IncrementalPageLayout.Host<FakePage> {
+        @Override
+        public boolean isLayoutRequested(FakePage page) {
+            return page.mLayoutRequested;
+        }
+
+        @Override
+        public void layoutPage(FakePage page, int position, int pageLeft, int pageWidth) {
+            page.mLeft = pageLeft;
+            page.mLayoutRequested = false;
+        }
+    }
+}
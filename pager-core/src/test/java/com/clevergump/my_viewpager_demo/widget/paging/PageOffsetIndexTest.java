@@ -0,0 +1,104 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PageOffsetIndexTest {
+
+    private static final int PAGE_WIDTH = 1080;
+    private static final int PAGE_COUNT = 5;
+
+    private PageOffsetIndex mOffsets;
+
+    @Before
+    public void setUp() {
+        mOffsets = new PageOffsetIndex();
+        mOffsets.rebuild(PAGE_COUNT, PAGE_WIDTH);
+        mOffsets.setViewportWidth(PAGE_WIDTH);
+    }
+
+    @Test
+    public void uniformWidths() {
+        for (int position = 0; position <= PAGE_COUNT; position++) {
+            assertEquals(position * PAGE_WIDTH, mOffsets.getPageLeft(position));
+        }
+        assertEquals(PAGE_WIDTH * PAGE_COUNT, mOffsets.getTotalWidth());
+        assertEquals(PAGE_WIDTH * (PAGE_COUNT - 1), mOffsets.getMaxScrollX());
+        // 滑过页面宽度的一半以后就算作下一页.
+        assertEquals(0, mOffsets.getNearestPage(PAGE_WIDTH / 2 - 1));
+        assertEquals(1, mOffsets.getNearestPage(PAGE_WIDTH / 2));
+        assertEquals(PAGE_COUNT - 1, mOffsets.getNearestPage(PAGE_WIDTH * 10));
+        assertEquals(0, mOffsets.getNearestPage(-100));
+        assertEquals(0, mOffsets.clampScrollX(-100));
+        assertEquals(PAGE_WIDTH * 2 + 7, mOffsets.clampScrollX(PAGE_WIDTH * 2 + 7));
+        assertEquals(PAGE_WIDTH * (PAGE_COUNT - 1), mOffsets.clampScrollX(PAGE_WIDTH * PAGE_COUNT));
+    }
+
+    @Test
+    public void resizingOnePageShiftsOnlyTheFollowingPages() {
+        mOffsets.setPageWidth(1, 864);
+        assertEquals(0, mOffsets.getPageLeft(0));
+        assertEquals(PAGE_WIDTH, mOffsets.getPageLeft(1));
+        assertEquals(PAGE_WIDTH + 864, mOffsets.getPageLeft(2));
+        assertEquals(PAGE_WIDTH * 4 + 864, mOffsets.getTotalWidth());
+
+        assertEquals(1, mOffsets.getPageAt(PAGE_WIDTH));
+        assertEquals(1, mOffsets.getPageAt(PAGE_WIDTH + 863));
+        assertEquals(2, mOffsets.getPageAt(PAGE_WIDTH + 864));
+        // 滑过第1页 (较窄) 宽度的一半以后, 当前页面就是第2页.
+        assertEquals(1, mOffsets.getNearestPage(PAGE_WIDTH + 431));
+        assertEquals(2, mOffsets.getNearestPage(PAGE_WIDTH + 432));
+    }
+
+    @Test
+    public void pagesNarrowerThanViewportStopWithTheLastPageRightAligned() {
+        // 0.8 倍宽的卡片: 最后一页的右边界对齐视口的右边界, 不能露出右边的空白.
+        mOffsets.rebuild(PAGE_COUNT, 864);
+        assertEquals(864 * PAGE_COUNT - PAGE_WIDTH, mOffsets.getMaxScrollX());
+        assertEquals(3240, mOffsets.clampScrollX(mOffsets.getPageLeft(PAGE_COUNT - 1)));
+        assertEquals(3240, mOffsets.clampScrollX(5000));
+        assertEquals(-240f, PagerMath.clampScrollDelta(-500f, 3000, mOffsets), 0f);
+        assertEquals(0f, PagerMath.clampScrollDelta(-500f, 3240, mOffsets), 0f);
+        // 滑动到最右边时当前页面就是最后一页.
+        assertEquals(PAGE_COUNT - 1, mOffsets.getNearestPage(3240));
+        assertEquals(3, mOffsets.getNearestPage(3000));
+
+        // 所有页面加起来也没有视口宽时不能滑动.
+        mOffsets.rebuild(1, 864);
+        assertEquals(0, mOffsets.getMaxScrollX());
+        assertEquals(0, mOffsets.clampScrollX(100));
+        assertEquals(0, mOffsets.getNearestPage(0));
+    }
+
+    @Test
+    public void pageAtMatchesLinearScanForMixedWidths() {
+        final int[] widths = {540, 1080, 864, 1080, 2160, 300, 1080};
+        mOffsets.rebuild(widths.length, new PageOffsetIndex.WidthProvider() {
+            @Override
+            public int getPageWidth(int position) {
+                return widths[position];
+            }
+        });
+        int left = 0;
+        for (int position = 0; position < widths.length; position++) {
+            assertEquals(left, mOffsets.getPageLeft(position));
+            assertEquals(position, mOffsets.getPageAt(left));
+            assertEquals(position, mOffsets.getPageAt(left + widths[position] - 1));
+            left += widths[position];
+        }
+        assertEquals(widths.length - 1, mOffsets.getPageAt(left + 5000));
+        assertEquals(0, mOffsets.getPageAt(-5));
+    }
+
+    @Test
+    public void releaseRuleUsesTheWidthOfThePageBeingRevealed() {
+        mOffsets.setPageWidth(1, 400);
+        // 从第2页向右拖动, 要露出的是第1页, 超过它宽度的一半 (200) 就翻过去.
+        assertEquals(1, PagerMath.getReleaseTargetPage(200, 2, mOffsets));
+        assertEquals(2, PagerMath.getReleaseTargetPage(199, 2, mOffsets));
+        // 从第1页向左拖动, 超过第1页宽度的一半就翻到第2页.
+        assertEquals(2, PagerMath.getReleaseTargetPage(-200, 1, mOffsets));
+    }
+}
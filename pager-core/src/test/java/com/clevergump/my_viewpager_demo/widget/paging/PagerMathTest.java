@@ -0,0 +1,71 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PagerMathTest {
+
+    private static final int PAGE_WIDTH = 1080;
+    private static final int PAGE_COUNT = 5;
+
+    private PageOffsetIndex mOffsets;
+
+    @Before
+    public void setUp() {
+        mOffsets = new PageOffsetIndex();
+        mOffsets.rebuild(PAGE_COUNT, PAGE_WIDTH);
+        mOffsets.setViewportWidth(PAGE_WIDTH);
+    }
+
+    @Test
+    public void clampScrollDeltaKeepsStripInsideViewport() {
+        // 第0页向右拖动, 不能把左边界拖进视口.
+        assertEquals(0f, PagerMath.clampScrollDelta(50f, 0, mOffsets), 0f);
+        assertEquals(30f, PagerMath.clampScrollDelta(50f, 30, mOffsets), 0f);
+        // 最后一页向左拖动, 不能把右边界拖进视口.
+        int maxScrollX = PAGE_WIDTH * (PAGE_COUNT - 1);
+        assertEquals(0f, PagerMath.clampScrollDelta(-50f, maxScrollX, mOffsets), 0f);
+        assertEquals(-20f, PagerMath.clampScrollDelta(-50f, maxScrollX - 20, mOffsets), 0f);
+        // 中间的页面不受影响.
+        assertEquals(-50f, PagerMath.clampScrollDelta(-50f, PAGE_WIDTH, mOffsets), 0f);
+    }
+
+    @Test
+    public void releaseTargetUsesHalfPageRule() {
+        assertEquals(3, PagerMath.getReleaseTargetPage(-PAGE_WIDTH / 2, 2, mOffsets));
+        assertEquals(1, PagerMath.getReleaseTargetPage(PAGE_WIDTH / 2, 2, mOffsets));
+        assertEquals(2, PagerMath.getReleaseTargetPage(-PAGE_WIDTH / 2 + 1, 2, mOffsets));
+    }
+
+    @Test
+    public void flingTargetMovesAtLeastOnePageAndIsClamped() {
+        // 估算的终点还在原来的页面附近, 也要沿着 fling 的方向翻过一页.
+        assertEquals(3, PagerMath.getFlingTargetPage(PAGE_WIDTH * 2 + 10, -100f, 2, mOffsets));
+        assertEquals(1, PagerMath.getFlingTargetPage(PAGE_WIDTH * 2 - 10, 100f, 2, mOffsets));
+        // 一次快速的 fling 可以翻过好几页, 但不能超出范围.
+        assertEquals(PAGE_COUNT - 1, PagerMath.getFlingTargetPage(PAGE_WIDTH * 40, -100f, 0, mOffsets));
+        assertEquals(0, PagerMath.getFlingTargetPage(-PAGE_WIDTH * 40, 100f, 4, mOffsets));
+    }
+
+    @Test
+    public void windowIsClampedToPageRange() {
+        assertEquals(0, PagerMath.getFirstWindowPage(0, 1));
+        assertEquals(1, PagerMath.getLastWindowPage(0, 1, PAGE_COUNT));
+        assertEquals(2, PagerMath.getFirstWindowPage(4, 2));
+        assertEquals(PAGE_COUNT - 1, PagerMath.getLastWindowPage(4, 2, PAGE_COUNT));
+    }
+
+    @Test
+    public void preloadPagesFollowSwipeDirectionFirst() {
+        // 向后翻页时, 先准备窗口右边的两页, 再准备窗口左边的一页.
+        assertEquals(7, PagerMath.getPreloadPage(0, 5, 1, 1, 2));
+        assertEquals(8, PagerMath.getPreloadPage(1, 5, 1, 1, 2));
+        assertEquals(3, PagerMath.getPreloadPage(2, 5, 1, 1, 2));
+        // 向前翻页时方向相反.
+        assertEquals(3, PagerMath.getPreloadPage(0, 5, 1, -1, 2));
+        assertEquals(2, PagerMath.getPreloadPage(1, 5, 1, -1, 2));
+        assertEquals(7, PagerMath.getPreloadPage(2, 5, 1, -1, 2));
+    }
+}
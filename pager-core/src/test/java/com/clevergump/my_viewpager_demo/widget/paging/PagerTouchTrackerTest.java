@@ -0,0 +1,280 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PagerTouchTrackerTest {
+
+    private static final int PAGE_WIDTH = 1080;
+    private static final int PAGE_COUNT = 5;
+    private static final int TOUCH_SLOP = 16;
+
+    private FakeHost mHost;
+    private PagerTouchTracker mTracker;
+
+    @Before
+    public void setUp() {
+        mHost = new FakeHost();
+        mTracker = new PagerTouchTracker(mHost, TOUCH_SLOP, 100, 8000, 50);
+    }
+
+    @Test
+    public void interceptsOnlyHorizontalMovesPastSlop() {
+        assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 500, 500, 0));
+        assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 490, 500, 8));
+        assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 480, 540, 16));
+        assertTrue(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 440, 510, 24));
+    }
+
+    @Test
+    public void horizontallyScrollableChildKeepsTheGesture() {
+        mHost.mChildCanScrollRight = true;
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 500, 500, 0);
+        // 手指向左移动, 子View可以向右滚动, 整个事件序列都交给子View.
+        for (int i = 1; i <= 50; i++) {
+            assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 500 - i * 10, 500, i * 8));
+        }
+        assertEquals(1, mHost.mChildScrollQueries);
+
+        // 下一次事件序列中, 手指向右移动, 子View不能向左滚动, 由分页控件拦截.
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 500, 500, 1000);
+        assertTrue(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 540, 500, 1008));
+        assertEquals(2, mHost.mChildScrollQueries);
+    }
+
+    @Test
+    public void childScrollAnswerIsCachedWhileMovingVertically() {
+        mHost.mChildCanScrollRight = true;
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 500, 500, 0);
+        // 先主要是竖直方向的移动, 不会询问子View.
+        assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 490, 560, 8));
+        assertEquals(0, mHost.mChildScrollQueries);
+        assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 400, 560, 16));
+        assertFalse(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 300, 560, 24));
+        assertEquals(1, mHost.mChildScrollQueries);
+    }
+
+    @Test
+    public void downDuringAnimationCatchesThePage() {
+        mHost.mAnimating = true;
+        assertTrue(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 500, 500, 0));
+        assertFalse(mHost.mAnimating);
+    }
+
+    @Test
+    public void slowDragPastHalfPageSettlesOnNextPage() {
+        drag(900, 300, 2000);
+        // 慢速拖过页面宽度的一半, 松手后继续移动到下一页.
+        assertEquals(PAGE_WIDTH, mHost.mSmoothTarget);
+    }
+
+    @Test
+    public void shortSlowDragSettlesBack() {
+        drag(900, 700, 2000);
+        assertEquals(0, mHost.mSmoothTarget);
+    }
+
+    @Test
+    public void fastFlingSkipsAtLeastOnePage() {
+        drag(900, 700, 50);
+        assertTrue(mHost.mSmoothVelocityX < 0);
+        assertTrue(mHost.mSmoothTarget >= PAGE_WIDTH);
+    }
+
+    @Test
+    public void dragStaysInsideBounds() {
+        // 第0页向右拖动, 页面不能离开左边界.
+        drag(100, 900, 2000);
+        assertEquals(0, mHost.mScrollX);
+        assertEquals(0, mHost.mSmoothTarget);
+    }
+
+    @Test
+    public void slowDragFollowsEveryMoveAfterSlop() {
+        mHost.mScrollX = PAGE_WIDTH * 2;
+        float x = 800;
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, x, 500, 0);
+        x -= TOUCH_SLOP + 4;
+        assertTrue(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, x, 500, 8));
+        float dragStartX = x;
+        // 之后每次只移动 0.3px, 远小于 touchSlop, 页面也要跟随.
+        for (int i = 1; i <= 200; i++) {
+            x -= 0.3f;
+            mTracker.onTouchEvent(PagerTouchTracker.ACTION_MOVE, x, 8 + i * 4);
+            float expectedScrollX = PAGE_WIDTH * 2 + 4 + (dragStartX - x);
+            assertEquals(expectedScrollX, mHost.mScrollX, 1f);
+        }
+    }
+
+    @Test
+    public void historicalSamplesAreTracked() {
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 800, 500, 0);
+        assertTrue(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 800 - TOUCH_SLOP, 500, 4));
+        assertTrue(mTracker.isBeingDragged());
+        // 一个 ACTION_MOVE 中批量携带了4个采样点 (240Hz), 最后一个是事件本身的坐标.
+        float x = 800 - TOUCH_SLOP;
+        long time = 4;
+        for (int i = 0; i < 3; i++) {
+            x -= 5.25f;
+            time += 4;
+            mTracker.addHistoricalMovement(time, x);
+        }
+        mTracker.onTouchEvent(PagerTouchTracker.ACTION_MOVE, x - 5.25f, time + 4);
+        assertEquals(21, mHost.mScrollX);
+    }
+
+    @Test
+    public void flingPastLastPageIsLeftToTheParent() {
+        mHost.mScrollX = PAGE_WIDTH * (PAGE_COUNT - 1);
+        drag(900, 700, 50);
+        assertFalse(mHost.mDragging);
+        assertTrue(mHost.mFlingDispatched);
+        assertFalse(mHost.mFlingConsumed);
+        assertEquals(PAGE_WIDTH * (PAGE_COUNT - 1), mHost.mSmoothTarget);
+    }
+
+    @Test
+    public void flingConsumedByParentOnlySettles() {
+        mHost.mParentConsumesFling = true;
+        drag(900, 700, 50);
+        assertFalse(mHost.mFlingDispatched);
+        // 没有了速度, 拖动的距离不到半页, 回到原来的页面.
+        assertEquals(0, mHost.mSmoothTarget);
+        assertEquals(0f, mHost.mSmoothVelocityX, 0f);
+    }
+
+    @Test
+    public void diagonalSlopCrossingDoesNotMoveAgainstTheFinger() {
+        mHost.mScrollX = 1000;
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, 500, 500, 0);
+        // 斜着越过 touchSlop: 12² + 11² >= 16², 但水平方向只移动了 12px.
+        assertTrue(mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, 512, 511, 8));
+        assertEquals(1000, mHost.mScrollX);
+        // 手指继续向右移动 1px, 页面也只能向右移动 1px (滑动位置变小).
+        mTracker.onTouchEvent(PagerTouchTracker.ACTION_MOVE, 513, 16);
+        assertEquals(999, mHost.mScrollX);
+    }
+
+    @Test
+    public void dragBackFromPeekingNeighbourSettlesOnCurrentPage() {
+        // 页面宽度为视口 (1000px) 的 0.8 倍, 第1页的左边一部分露在视口右侧, 手指按在它上面.
+        usePageWidth(800);
+        drag(900, 1000, 2000);
+        assertEquals(0, mHost.mSmoothTarget);
+    }
+
+    @Test
+    public void shortFlickFromPeekingNeighbourAdvancesOnePage() {
+        usePageWidth(800);
+        drag(900, 800, 50);
+        assertTrue(mHost.mSmoothVelocityX < 0);
+        assertEquals(800, mHost.mSmoothTarget);
+    }
+
+    private void usePageWidth(int pageWidth) {
+        mHost.mOffsets.rebuild(PAGE_COUNT, pageWidth);
+    }
+
+    /**
+     * 在给定的时间内从 fromX 匀速拖动到 toX, 然后抬起手指.
+     */
+    private void drag(float fromX, float toX, long durationMillis) {
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, fromX, 500, 0);
+        int steps = 20;
+        boolean intercepted = false;
+        for (int i = 1; i <= steps; i++) {
+            float x = fromX + (toX - fromX) * i / steps;
+            long time = durationMillis * i / steps;
+            if (!intercepted) {
+                intercepted = mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, x, 500, time);
+            } else {
+                mTracker.onTouchEvent(PagerTouchTracker.ACTION_MOVE, x, time);
+            }
+        }
+        mTracker.onTouchEvent(PagerTouchTracker.ACTION_UP, toX, durationMillis);
+    }
+
+    private static class FakeHost implements PagerTouchTracker.Host {
+        int mScrollX;
+        boolean mAnimating;
+        int mSmoothTarget;
+        float mSmoothVelocityX;
+        boolean mChildCanScrollLeft;
+        boolean mChildCanScrollRight;
+        int mChildScrollQueries;
+        boolean mDragging;
+        boolean mParentConsumesFling;
+        boolean mFlingDispatched;
+        boolean mFlingConsumed;
+        final PageOffsetIndex mOffsets = new PageOffsetIndex();
+
+        FakeHost() {
+            mOffsets.rebuild(PAGE_COUNT, PAGE_WIDTH);
+            mOffsets.setViewportWidth(PAGE_WIDTH);
+        }
+
+        @Override
+        public int getPageScrollX() {
+            return mScrollX;
+        }
+
+        @Override
+        public PageOffsetIndex getPageOffsets() {
+            return mOffsets;
+        }
+
+        @Override
+        public void dragBy(int dx) {
+            mScrollX = mOffsets.clampScrollX(mScrollX + dx);
+        }
+
+        @Override
+        public void smoothScrollBy(int dx, float velocityX) {
+            mSmoothTarget = mScrollX - dx;
+            mSmoothVelocityX = velocityX;
+        }
+
+        @Override
+        public boolean catchScrollAnimation() {
+            boolean animating = mAnimating;
+            mAnimating = false;
+            return animating;
+        }
+
+        @Override
+        public float projectFlingPosition(float scrollX, float scrollVelocity) {
+            return scrollX + scrollVelocity * Math.abs(scrollVelocity) / (2 * 7500f);
+        }
+
+        @Override
+        public boolean canTouchedChildScrollHorizontally(int direction) {
+            mChildScrollQueries++;
+            return direction < 0 ? mChildCanScrollLeft : mChildCanScrollRight;
+        }
+
+        @Override
+        public void onDragStarted() {
+            mDragging = true;
+        }
+
+        @Override
+        public void onDragEnded() {
+            mDragging = false;
+        }
+
+        @Override
+        public boolean dispatchPreFling(float scrollVelocity) {
+            return mParentConsumesFling;
+        }
+
+        @Override
+        public void dispatchFling(float scrollVelocity, boolean consumed) {
+            mFlingDispatched = true;
+            mFlingConsumed = consumed;
+        }
+    }
+}
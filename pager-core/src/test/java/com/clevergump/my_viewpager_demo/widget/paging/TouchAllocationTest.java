@@ -0,0 +1,138 @@
+package com.clevergump.my_viewpager_demo.widget.paging;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 重放一次1000个事件的手势, 统计处理过程中当前线程分配的内存.
+ */
+public class TouchAllocationTest {
+
+    private static final int GESTURE_EVENTS = 1000;
+    private static final int PAGE_WIDTH = 1080;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private PagerTouchTracker mTracker;
+    private PagerTouchTracker.Host mHost;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        mHost = new AllocationFreeHost();
+        mTracker = new PagerTouchTracker(mHost, 16, 100, 8000, 50);
+    }
+
+    @Test
+    public void gestureAllocatesNothing() {
+        // 先重放几次, 让类加载和 JIT 编译产生的分配不计入统计.
+        for (int i = 0; i < 20; i++) {
+            replayGesture();
+        }
+        long threadId = Thread.currentThread().getId();
+        // getThreadAllocatedBytes() 本身的分配作为基准扣除.
+        long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        long baseline = mThreadBean.getThreadAllocatedBytes(threadId) - before;
+
+        before = mThreadBean.getThreadAllocatedBytes(threadId);
+        replayGesture();
+        long allocated = mThreadBean.getThreadAllocatedBytes(threadId) - before - baseline;
+
+        assertEquals(0, allocated);
+    }
+
+    /**
+     * 从第10页开始, 先慢慢向左拖动, 再拐回来向右拖动, 最后抬起手指. 事件中穿插着少于 touchSlop 的移动.
+     */
+    private void replayGesture() {
+        ((AllocationFreeHost) mHost).mScrollX = PAGE_WIDTH * 10;
+        long time = 0;
+        float x = 700;
+        float y = 500;
+        mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_DOWN, x, y, time);
+        boolean intercepted = false;
+        for (int i = 0; i < GESTURE_EVENTS - 2; i++) {
+            time += 4;
+            x += i < GESTURE_EVENTS / 2 ? -(i % 7) : (i % 5);
+            y += (i & 1) == 0 ? 1 : -1;
+            mTracker.addHistoricalMovement(time - 2, x + 1);
+            if (!intercepted) {
+                intercepted = mTracker.onInterceptTouchEvent(PagerTouchTracker.ACTION_MOVE, x, y, time);
+            } else {
+                mTracker.onTouchEvent(PagerTouchTracker.ACTION_MOVE, x, time);
+            }
+        }
+        mTracker.onTouchEvent(PagerTouchTracker.ACTION_UP, x, time);
+    }
+
+    private static class AllocationFreeHost implements PagerTouchTracker.Host {
+        int mScrollX;
+        final PageOffsetIndex mOffsets = new PageOffsetIndex();
+
+        AllocationFreeHost() {
+            mOffsets.rebuild(100, PAGE_WIDTH);
+            mOffsets.setViewportWidth(PAGE_WIDTH);
+        }
+
+        @Override
+        public int getPageScrollX() {
+            return mScrollX;
+        }
+
+        @Override
+        public PageOffsetIndex getPageOffsets() {
+            return mOffsets;
+        }
+
+        @Override
+        public void dragBy(int dx) {
+            mScrollX = mOffsets.clampScrollX(mScrollX + dx);
+        }
+
+        @Override
+        public void smoothScrollBy(int dx, float velocityX) {
+            mScrollX -= dx;
+        }
+
+        @Override
+        public boolean catchScrollAnimation() {
+            return false;
+        }
+
+        @Override
+        public float projectFlingPosition(float scrollX, float scrollVelocity) {
+            return scrollX + scrollVelocity * Math.abs(scrollVelocity) / (2 * 7500f);
+        }
+
+        @Override
+        public boolean canTouchedChildScrollHorizontally(int direction) {
+            return false;
+        }
+
+        @Override
+        public void onDragStarted() {
+        }
+
+        @Override
+        public void onDragEnded() {
+        }
+
+        @Override
+        public boolean dispatchPreFling(float scrollVelocity) {
+            return false;
+        }
+
+        @Override
+        public void dispatchFling(float scrollVelocity, boolean consumed) {
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.clevergump.my_viewpager_demo.widget.scroll;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpringScrollEngineTest {
+
+    private static final long FRAME_NANOS = 16666667L;
+    private static final float PAGE_WIDTH = 1080f;
+
+    private SpringScrollEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new SpringScrollEngine(SpringScrollEngine.DEFAULT_STIFFNESS, 7500f);
+    }
+
+    @Test
+    public void settlesExactlyOnTarget() {
+        mEngine.start(0, 0, PAGE_WIDTH, 0);
+        long finishTime = runUntilFinished(0);
+
+        assertTrue(mEngine.isFinished());
+        assertEquals(PAGE_WIDTH, mEngine.getPosition(), 0f);
+        assertEquals(0f, mEngine.getVelocity(), 0f);
+        // 移动一页不应超过 0.4 秒.
+        assertTrue(finishTime < 400000000L);
+    }
+
+    @Test
+    public void durationGrowsWithDistanceAndShrinksWithVelocity() {
+        mEngine.start(0, 0, PAGE_WIDTH, 0);
+        long onePage = runUntilFinished(0);
+
+        mEngine.start(0, 0, PAGE_WIDTH * 5, 0);
+        long fivePages = runUntilFinished(0);
+
+        mEngine.start(0, 8000f, PAGE_WIDTH, 0);
+        long onePageWithVelocity = runUntilFinished(0);
+
+        assertTrue(fivePages > onePage);
+        assertTrue(onePageWithVelocity < onePage);
+    }
+
+    @Test
+    public void retargetKeepsPositionAndVelocityContinuous() {
+        mEngine.start(0, 0, PAGE_WIDTH, 0);
+        mEngine.computeOffset(5 * FRAME_NANOS);
+        float position = mEngine.getPosition();
+        float velocity = mEngine.getVelocity();
+
+        mEngine.retarget(PAGE_WIDTH * 3, 5 * FRAME_NANOS);
+
+        assertEquals(position, mEngine.getPosition(), 0.01f);
+        assertEquals(velocity, mEngine.getVelocity(), 0.01f);
+        mEngine.computeOffset(5 * FRAME_NANOS + 1000000L);
+        // 1 ms 之后只前进了一小段距离, 没有跳变.
+        assertTrue(Math.abs(mEngine.getPosition() - position) < 20f);
+        runUntilFinished(6 * FRAME_NANOS);
+        assertEquals(PAGE_WIDTH * 3, mEngine.getPosition(), 0f);
+    }
+
+    @Test
+    public void stopFreezesAtCurrentPositionInsteadOfJumpingToTarget() {
+        mEngine.start(0, 0, PAGE_WIDTH, 0);
+        mEngine.computeOffset(3 * FRAME_NANOS);
+        float positionBeforeStop = mEngine.getPosition();
+
+        mEngine.stop(3 * FRAME_NANOS);
+
+        assertTrue(mEngine.isFinished());
+        assertEquals(positionBeforeStop, mEngine.getPosition(), 0.01f);
+        assertTrue(mEngine.getPosition() < PAGE_WIDTH);
+        assertFalse(mEngine.computeOffset(100 * FRAME_NANOS));
+        assertEquals(positionBeforeStop, mEngine.getPosition(), 0.01f);
+    }
+
+    @Test
+    public void highReleaseVelocityDoesNotOvershootTarget() {
+        // 以很高的速度松手, 目标是最后一页, 越过目标就会露出页面以外的空白.
+        mEngine.start(3500f, 20000f, 4000f, 0);
+        long time = 0;
+        while (mEngine.computeOffset(time)) {
+            assertTrue("overshoot: " + mEngine.getPosition(), mEngine.getPosition() <= 4000f);
+            time += 1000000L;
+        }
+        assertEquals(4000f, mEngine.getPosition(), 0f);
+
+        // 反方向也一样.
+        mEngine.start(500f, -20000f, 0f, 0);
+        time = 0;
+        while (mEngine.computeOffset(time)) {
+            assertTrue("overshoot: " + mEngine.getPosition(), mEngine.getPosition() >= 0f);
+            time += 1000000L;
+        }
+        assertEquals(0f, mEngine.getPosition(), 0f);
+    }
+
+    @Test
+    public void positionDependsOnlyOnElapsedTime() {
+        // 每帧都计算和跳过几帧之后再计算, 得到的位置应该相同, 掉帧不会累积误差.
+        mEngine.start(0, 2000f, PAGE_WIDTH * 2, 0);
+        for (int frame = 1; frame <= 10; frame++) {
+            mEngine.computeOffset(frame * FRAME_NANOS);
+        }
+        float everyFrame = mEngine.getPosition();
+
+        mEngine.start(0, 2000f, PAGE_WIDTH * 2, 0);
+        mEngine.computeOffset(10 * FRAME_NANOS);
+
+        assertEquals(everyFrame, mEngine.getPosition(), 0.001f);
+    }
+
+    @Test
+    public void flingProjectionFollowsVelocityDirection() {
+        assertEquals(PAGE_WIDTH, mEngine.projectFlingPosition(PAGE_WIDTH, 0), 0f);
+        assertTrue(mEngine.projectFlingPosition(PAGE_WIDTH, 3000f) > PAGE_WIDTH);
+        assertTrue(mEngine.projectFlingPosition(PAGE_WIDTH, -3000f) < PAGE_WIDTH);
+        // v² / 2a
+        assertEquals(600f, mEngine.projectFlingPosition(0, 3000f), 0.01f);
+    }
+
+    private long runUntilFinished(long startTime) {
+        long time = startTime;
+        while (mEngine.computeOffset(time)) {
+            // 以 1 ms 为步长, 让不同情况下的动画时长可以比较.
+            time += 1000000L;
+            if (time > 10000000000L) {
+                throw new AssertionError("spring never settled");
+            }
+        }
+        return time;
+    }
+}